@@ -0,0 +1,80 @@
+package rachwal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * "Core courses plus k of n electives": one grouped search that shares the core, against
+ * one search per subset of electives (how callers had to do it before).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CourseGroupBenchmark {
+
+    @Param("4")
+    public int coreCourses;
+
+    @Param("6")
+    public int electives;
+
+    @Param("2")
+    public int electivesTaken;
+
+    @Param("10")
+    public int sectionsPerCourse;
+
+    @Param({"0.3", "0.5"})
+    public double conflictDensity;
+
+    private List<Course> core;
+    private List<Course> electiveCourses;
+    private CompatibilityIndex index;
+
+    @Setup
+    public void buildCatalogue() {
+        List<Course> catalogue = new SyntheticCatalogue(coreCourses + electives, sectionsPerCourse, 2, conflictDensity).courses(42);
+        core = catalogue.subList(0, coreCourses);
+        electiveCourses = catalogue.subList(coreCourses, catalogue.size());
+        index = new CompatibilityIndex(catalogue);
+    }
+
+    @Benchmark
+    public List<List<Section>> grouped() {
+        return new ScheduleCombinations(core, index).generateCombinations(List.of(CourseGroup.choose(electivesTaken, electiveCourses)));
+    }
+
+    @Benchmark
+    public List<List<Section>> perSubset() {
+        List<List<Section>> schedules = new ArrayList<>();
+        for (int subset = 0; subset < 1 << electives; subset++) {
+            if (Integer.bitCount(subset) != electivesTaken) {
+                continue;
+            }
+            List<Course> courses = new ArrayList<>(core);
+            for (int i = 0; i < electives; i++) {
+                if ((subset & (1 << i)) != 0) {
+                    courses.add(electiveCourses.get(i));
+                }
+            }
+            schedules.addAll(new ScheduleCombinations(courses, index).generateCombinations());
+        }
+        return schedules;
+    }
+}
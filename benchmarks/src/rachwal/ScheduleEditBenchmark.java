@@ -0,0 +1,95 @@
+package rachwal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Editing the course list the way the GUI does: adding a course to schedules already found,
+ * against searching the longer list again. Setup first replays a sequence of adds, pins,
+ * unpins and drops and fails unless every incremental result equals a full regeneration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScheduleEditBenchmark {
+
+    @Param("6")
+    public int courses;
+
+    @Param("10")
+    public int sectionsPerCourse;
+
+    @Param("2")
+    public int meetingsPerSection;
+
+    @Param({"0.25", "0.5"})
+    public double conflictDensity;
+
+    private List<Course> catalogue;
+    private CompatibilityIndex index;
+
+    @Setup
+    public void buildCatalogue() {
+        catalogue = new SyntheticCatalogue(courses, sectionsPerCourse, meetingsPerSection, conflictDensity).courses(42);
+        index = new CompatibilityIndex(catalogue);
+        checkEditsMatchRegeneration();
+    }
+
+    private void checkEditsMatchRegeneration() {
+        ScheduleCombinations edited = new ScheduleCombinations(new ArrayList<>(), index);
+        for (Course course : catalogue) {
+            check("add " + course.getCourseId(), edited.addCourse(course), edited, null);
+        }
+        Section pin = catalogue.get(0).getSections().get(sectionsPerCourse / 2);
+        check("pin", edited.pinSection(pin), edited, pin);
+        Section repin = catalogue.get(0).getSections().get(0);
+        check("repin", edited.pinSection(repin), edited, repin);
+        check("unpin", edited.unpinCourse(repin.getCourse()), edited, null);
+        Course last = catalogue.get(catalogue.size() - 1);
+        check("drop " + last.getCourseId(), edited.removeCourse(last), edited, null);
+        check("re-add " + last.getCourseId(), edited.addCourse(last), edited, null);
+        check("drop " + catalogue.get(0).getCourseId(), edited.removeCourse(catalogue.get(0)), edited, null);
+    }
+
+    private void check(String edit, List<List<Section>> result, ScheduleCombinations edited, Section pinned) {
+        List<List<Section>> expected = new ArrayList<>();
+        for (List<Section> schedule : new ScheduleCombinations(edited.getCourses(), index).generateCombinations()) {
+            if (pinned == null || schedule.contains(pinned)) {
+                expected.add(schedule);
+            }
+        }
+        if (!result.equals(expected)) {
+            throw new IllegalStateException("After " + edit + ": " + result.size() + " schedules, a full search finds " + expected.size());
+        }
+    }
+
+    @Benchmark
+    public List<List<Section>> addCourse() {
+        ScheduleCombinations scheduleCombinations = new ScheduleCombinations(catalogue.subList(0, catalogue.size() - 1), index);
+        scheduleCombinations.generateCombinations();
+        return scheduleCombinations.addCourse(catalogue.get(catalogue.size() - 1));
+    }
+
+    @Benchmark
+    public List<List<Section>> searchAgain() {
+        ScheduleCombinations scheduleCombinations = new ScheduleCombinations(catalogue.subList(0, catalogue.size() - 1), index);
+        scheduleCombinations.generateCombinations();
+        return new ScheduleCombinations(catalogue, index).generateCombinations();
+    }
+}
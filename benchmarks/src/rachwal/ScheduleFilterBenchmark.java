@@ -0,0 +1,93 @@
+package rachwal;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The filters behind the GUI: time and seat constraints pushed into the search, the same
+ * constraints applied to every generated schedule afterwards (how the GUI used to filter),
+ * the feasibility check, and ranking the best schedules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScheduleFilterBenchmark {
+
+    @Param("6")
+    public int courses;
+
+    @Param("10")
+    public int sectionsPerCourse;
+
+    @Param("2")
+    public int meetingsPerSection;
+
+    @Param({"0.25", "0.5"})
+    public double conflictDensity;
+
+    @Param("10")
+    public int topK;
+
+    private List<Course> catalogue;
+    private CompatibilityIndex index;
+    private final ScheduleConstraints constraints = new ScheduleConstraints(LocalTime.of(9, 0), LocalTime.of(18, 0), true);
+    private final ScheduleScorer scorer = ScheduleScorer.fewestDays().plus(ScheduleScorer.leastIdleTime());
+
+    @Setup
+    public void buildCatalogue() {
+        catalogue = new SyntheticCatalogue(courses, sectionsPerCourse, meetingsPerSection, conflictDensity).courses(42);
+        index = new CompatibilityIndex(catalogue);
+    }
+
+    @Benchmark
+    public List<List<Section>> constrainedSearch() {
+        ScheduleCombinations scheduleCombinations = new ScheduleCombinations(catalogue, index);
+        scheduleCombinations.setConstraints(constraints);
+        return scheduleCombinations.generateCombinations();
+    }
+
+    @Benchmark
+    public List<List<Section>> filterAfterSearch() {
+        List<List<Section>> filtered = new ArrayList<>();
+        for (List<Section> combination : new ScheduleCombinations(catalogue, index).generateCombinations()) {
+            if (combination.stream().allMatch(constraints::accepts)) {
+                filtered.add(combination);
+            }
+        }
+        return filtered;
+    }
+
+    @Benchmark
+    public BitSet checkFeasibility() {
+        ScheduleCombinations scheduleCombinations = new ScheduleCombinations(catalogue, index);
+        scheduleCombinations.setConstraints(constraints);
+        try {
+            return scheduleCombinations.checkFeasibility();
+        } catch (InfeasibleScheduleException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public List<List<Section>> topCombinations() {
+        return new ScheduleCombinations(catalogue, index).topCombinations(scorer, topK);
+    }
+}
@@ -0,0 +1,179 @@
+package rachwal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading a synthetic "Course ID:" catalogue: {@link ScheduleParser} single-threaded and
+ * memory-mapped in parallel, the original split/trim/formatter parser as the baseline, and
+ * reading the binary snapshot written by {@link CatalogueLoader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScheduleParserBenchmark {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("hh:mm a", Locale.US);
+
+    @Param({"2000", "20000"})
+    public int courses;
+
+    @Param("10")
+    public int sectionsPerCourse;
+
+    @Param("2")
+    public int meetingsPerSection;
+
+    @Param("0")
+    public int parallelism; // 0 for one thread per processor
+
+    private Path file;
+    private final ScheduleParser parser = new ScheduleParser();
+
+    @Setup
+    public void writeCatalogue() throws IOException {
+        file = Files.createTempFile("catalogue", ".txt");
+        SyntheticCatalogue.writeText(new SyntheticCatalogue(courses, sectionsPerCourse, meetingsPerSection, 0.5).courses(42), file);
+        CatalogueLoader.load(file.toString()); // Writes the snapshot
+        if (parallelism == 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    @TearDown
+    public void deleteCatalogue() throws IOException {
+        Files.deleteIfExists(CatalogueSnapshot.snapshotPathFor(file));
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<Course> parse() throws IOException {
+        return parser.parseCoursesFromFile(file.toString());
+    }
+
+    @Benchmark
+    public List<Course> parseInParallel() throws IOException {
+        return parser.parseCoursesFromFileInParallel(file.toString(), parallelism);
+    }
+
+    @Benchmark
+    public List<Course> parseOriginal() throws IOException {
+        return parseWithOriginal(file.toString());
+    }
+
+    @Benchmark
+    public List<Course> readSnapshot() throws IOException {
+        return CatalogueSnapshot.read(file);
+    }
+
+    // The same snapshot left in columns, without building any Course objects.
+    @Benchmark
+    public ColumnarCatalogue readSnapshotColumnar() throws IOException {
+        return CatalogueSnapshot.readCatalogue(file);
+    }
+
+    // The parser as it was before the single-pass rewrite, kept as the baseline.
+    private static List<Course> parseWithOriginal(String filePath) throws IOException {
+        List<Course> courses = new ArrayList<>();
+        Course currentCourse = null;
+        Section currentSection = null;
+        Meeting currentMeeting = null;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("Course ID:")) {
+                    if (currentCourse != null) {
+                        if (currentSection != null) {
+                            currentCourse.getSections().add(currentSection);
+                            currentSection = null;
+                        }
+                        courses.add(currentCourse);
+                    }
+                    currentCourse = new Course();
+                    currentCourse.setCourseId(line.split(": ")[1].trim());
+                } else if (line.startsWith("Section ")) {
+                    if (currentSection != null) {
+                        currentCourse.getSections().add(currentSection);
+                    }
+                    currentSection = new Section();
+                    currentSection.setCourse(currentCourse);
+                    currentSection.setSectionNumber(Integer.parseInt(line.split(" ")[1].replace(":", "").trim()));
+                } else if (line.trim().startsWith("Title:")) {
+                    currentSection.setTitle(line.split(": ")[1].trim());
+                } else if (line.trim().startsWith("Capacity:")) {
+                    currentSection.setCapacity(Integer.parseInt(line.split(": ")[1].trim()));
+                } else if (line.trim().startsWith("Enrolled:")) {
+                    currentSection.setEnrolled(Integer.parseInt(line.split(": ")[1].trim()));
+                } else if (line.trim().startsWith("Available:")) {
+                    currentSection.setAvailable(Integer.parseInt(line.split(": ")[1].trim()));
+                } else if (line.trim().startsWith("Instructional Method:")) {
+                    if (currentMeeting != null) {
+                        currentSection.addMeeting(currentMeeting);
+                    }
+                    currentMeeting = new Meeting();
+                    currentMeeting.setType(line.split(": ")[1].trim());
+                } else if (line.trim().startsWith("Corrected Start Time:")) {
+                    try {
+                        currentMeeting.setStartTime(LocalTime.parse(line.split(": ")[1].trim().toUpperCase(Locale.US), TIME_FORMATTER));
+                    } catch (DateTimeParseException e) {
+                        System.err.println("Failed to parse start time: '" + line + "'");
+                    }
+                } else if (line.trim().startsWith("Corrected End Time:")) {
+                    try {
+                        currentMeeting.setEndTime(LocalTime.parse(line.split(": ")[1].trim().toUpperCase(Locale.US), TIME_FORMATTER));
+                    } catch (DateTimeParseException e) {
+                        System.err.println("Failed to parse end time: '" + line + "'");
+                    }
+                } else if (line.trim().startsWith("Days:")) {
+                    String daysStr = line.substring(line.indexOf('[') + 1, line.indexOf(']'));
+                    currentMeeting.setDays(Arrays.stream(daysStr.split(",")).map(String::trim).map(Integer::parseInt).collect(Collectors.toList()));
+                } else if (line.trim().startsWith("Room:")) {
+                    currentMeeting.setRoom(line.split(": ")[1].trim());
+                    currentSection.addMeeting(currentMeeting);
+                    currentMeeting = null;
+                } else if (line.trim().startsWith("Faculty ID:")) {
+                    Faculty faculty = new Faculty();
+                    faculty.setFacultyId(line.split(": ")[1].trim());
+                    line = reader.readLine();
+                    faculty.setFacultyName(line.split(": ")[1].trim());
+                    currentSection.addFaculty(faculty);
+                }
+            }
+            if (currentSection != null) {
+                currentCourse.getSections().add(currentSection);
+            }
+            if (currentCourse != null) {
+                courses.add(currentCourse);
+            }
+        }
+        return courses;
+    }
+}
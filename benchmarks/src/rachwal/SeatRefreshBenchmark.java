@@ -0,0 +1,123 @@
+package rachwal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Seat counts changing under an open-seats search: refreshing the kept schedules against
+ * searching again. Each operation fills some sections and reopens others, then puts them
+ * back, so the catalogue is the same before every call. Setup fails unless the kept
+ * schedules, less those reported removed and plus those reported restored, equal a fresh
+ * search after the same updates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SeatRefreshBenchmark {
+
+    @Param("6")
+    public int courses;
+
+    @Param("10")
+    public int sectionsPerCourse;
+
+    @Param("2")
+    public int meetingsPerSection;
+
+    @Param("0.25")
+    public double conflictDensity;
+
+    @Param({"1", "8"})
+    public int changedSections;
+
+    private final ScheduleConstraints openSeats = new ScheduleConstraints(null, null, true);
+    private List<Course> catalogue;
+    private CompatibilityIndex index;
+    private SeatUpdater seatUpdater;
+    private List<SeatUpdate> updates;
+    private List<SeatUpdate> reverts;
+    private ScheduleCombinations scheduleCombinations;
+
+    @Setup
+    public void buildCatalogue() {
+        catalogue = new SyntheticCatalogue(courses, sectionsPerCourse, meetingsPerSection, conflictDensity).courses(42);
+        index = new CompatibilityIndex(catalogue);
+        seatUpdater = new SeatUpdater(catalogue);
+        updates = new ArrayList<>();
+        reverts = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < changedSections; i++) {
+            Course course = catalogue.get(random.nextInt(catalogue.size()));
+            Section section = course.getSections().get(random.nextInt(course.getSections().size()));
+            // Full sections open up; open ones fill
+            int available = section.getAvailable() > 0 ? 0 : 5;
+            updates.add(new SeatUpdate(course.getCourseId(), section.getSectionNumber(), section.getCapacity(),
+                    section.getCapacity() - available, available));
+            reverts.add(0, new SeatUpdate(course.getCourseId(), section.getSectionNumber(), section.getCapacity(),
+                    section.getEnrolled(), section.getAvailable()));
+        }
+        scheduleCombinations = new ScheduleCombinations(catalogue, index);
+        scheduleCombinations.setConstraints(openSeats);
+        scheduleCombinations.generateCombinations();
+        checkRefreshMatchesSearch(updates);
+        checkRefreshMatchesSearch(reverts);
+    }
+
+    private void checkRefreshMatchesSearch(List<SeatUpdate> seatUpdates) {
+        List<List<Section>> before = scheduleCombinations.getCombinations();
+        seatUpdater.apply(seatUpdates);
+        ScheduleChanges changes = scheduleCombinations.refreshSeats();
+
+        Set<List<Section>> expected = new HashSet<>(before);
+        expected.removeAll(changes.getRemoved());
+        expected.addAll(changes.getRestored());
+        ScheduleCombinations fresh = new ScheduleCombinations(catalogue, index);
+        fresh.setConstraints(openSeats);
+        List<List<Section>> searched = fresh.generateCombinations();
+        // Same schedules as a new search, and kept in its order
+        int count = before.size() - changes.getRemoved().size() + changes.getRestored().size();
+        if (count != searched.size() || !expected.equals(new HashSet<>(searched)) || !scheduleCombinations.getCombinations().equals(searched)) {
+            throw new IllegalStateException("Refresh kept " + before.size() + " - " + changes.getRemoved().size() + " + "
+                    + changes.getRestored().size() + " schedules, a new search finds " + searched.size());
+        }
+    }
+
+    @Benchmark
+    public ScheduleChanges refreshSeats() {
+        seatUpdater.apply(updates);
+        scheduleCombinations.refreshSeats();
+        seatUpdater.apply(reverts);
+        return scheduleCombinations.refreshSeats();
+    }
+
+    @Benchmark
+    public List<List<Section>> searchAgain() {
+        seatUpdater.apply(updates);
+        ScheduleCombinations afterUpdates = new ScheduleCombinations(catalogue, index);
+        afterUpdates.setConstraints(openSeats);
+        afterUpdates.generateCombinations();
+        seatUpdater.apply(reverts);
+        ScheduleCombinations afterReverts = new ScheduleCombinations(catalogue, index);
+        afterReverts.setConstraints(openSeats);
+        return afterReverts.generateCombinations();
+    }
+}
@@ -0,0 +1,113 @@
+package rachwal;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Builds reproducible catalogues for the benchmarks. Meetings last 50 or 80 minutes and
+ * meet on one or two weekdays. Conflict density runs from 0 to 1 and narrows where they
+ * can be placed. At 0 a meeting may start on any half hour from 8:30 to 20:00, Monday to
+ * Friday. At 1 every meeting starts at 8:30 on Monday, so every pair of sections conflicts.
+ */
+public class SyntheticCatalogue {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("hh:mm a", Locale.US);
+    private static final int START_SLOTS = 24; // half hours from 8:30 to 20:00
+    private static final int WEEKDAYS = 5;
+
+    private final int courseCount;
+    private final int sectionsPerCourse;
+    private final int meetingsPerSection;
+    private final double conflictDensity;
+
+    public SyntheticCatalogue(int courseCount, int sectionsPerCourse, int meetingsPerSection, double conflictDensity) {
+        if (conflictDensity < 0 || conflictDensity > 1) {
+            throw new IllegalArgumentException("Conflict density must be between 0 and 1: " + conflictDensity);
+        }
+        this.courseCount = courseCount;
+        this.sectionsPerCourse = sectionsPerCourse;
+        this.meetingsPerSection = meetingsPerSection;
+        this.conflictDensity = conflictDensity;
+    }
+
+    public List<Course> courses(long seed) {
+        Random random = new Random(seed);
+        int startSlots = Math.max(1, (int) Math.round(START_SLOTS * (1 - conflictDensity)));
+        int days = Math.max(1, (int) Math.round(WEEKDAYS * (1 - conflictDensity)));
+
+        List<Course> courses = new ArrayList<>();
+        for (int c = 0; c < courseCount; c++) {
+            Course course = new Course();
+            course.setCourseId("SYN*" + (1000 + c));
+            for (int s = 1; s <= sectionsPerCourse; s++) {
+                Section section = new Section();
+                section.setCourse(course);
+                section.setSectionNumber(s);
+                section.setTitle("Synthetic Course " + c);
+                section.setCapacity(40);
+                section.setAvailable(random.nextInt(41));
+                section.setEnrolled(40 - section.getAvailable());
+                for (int m = 0; m < meetingsPerSection; m++) {
+                    Meeting meeting = new Meeting();
+                    meeting.setType(m == 0 ? "LEC" : "LAB");
+                    LocalTime startTime = LocalTime.of(8, 30).plusMinutes(30L * random.nextInt(startSlots));
+                    meeting.setStartTime(startTime);
+                    meeting.setEndTime(startTime.plusMinutes(random.nextBoolean() ? 50 : 80));
+                    int day = 1 + random.nextInt(days);
+                    meeting.setDays(days > 1 && random.nextBoolean() ? Arrays.asList(day, day % days + 1) : Arrays.asList(day));
+                    meeting.setRoom("ROOM*" + random.nextInt(200));
+                    section.addMeeting(meeting);
+                }
+                course.addSection(section);
+            }
+            courses.add(course);
+        }
+        return courses;
+    }
+
+    // Writes courses in the "Course ID:" text format read by ScheduleParser.
+    public static void writeText(List<Course> courses, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (Course course : courses) {
+                writer.write("Course ID: " + course.getCourseId() + "\n");
+                for (Section section : course.getSections()) {
+                    writer.write("Section " + section.getSectionNumber() + ":\n");
+                    writer.write("  Title: " + section.getTitle() + "\n");
+                    writer.write("  Capacity: " + section.getCapacity() + "\n");
+                    writer.write("  Enrolled: " + section.getEnrolled() + "\n");
+                    writer.write("  Available: " + section.getAvailable() + "\n");
+                    writeDates(writer, "  ", section.getStartDate(), section.getEndDate());
+                    for (Meeting meeting : section.getMeetings()) {
+                        writer.write("    Instructional Method: " + meeting.getType() + "\n");
+                        writer.write("    Corrected Start Time: " + meeting.getStartTime().format(TIME_FORMATTER) + "\n");
+                        writer.write("    Corrected End Time: " + meeting.getEndTime().format(TIME_FORMATTER) + "\n");
+                        writer.write("    Days: " + meeting.getDays() + "\n");
+                        writeDates(writer, "    ", meeting.getStartDate(), meeting.getEndDate()); // Room closes the meeting
+                        writer.write("    Room: " + meeting.getRoom() + "\n");
+                    }
+                    writer.write("  Faculty ID: 0" + (1000000 + section.getSectionNumber()) + "\n");
+                    writer.write("  Faculty Name: Instructor, " + (char) ('A' + section.getSectionNumber() % 26) + "\n");
+                }
+            }
+        }
+    }
+
+    private static void writeDates(BufferedWriter writer, String indent, LocalDate start, LocalDate end) throws IOException {
+        if (start != null) {
+            writer.write(indent + "Start Date: " + start + "\n");
+        }
+        if (end != null) {
+            writer.write(indent + "End Date: " + end + "\n");
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package rachwal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Headless scheduling for a whole intake. The catalogue is loaded and indexed once, then
+ * every student request is solved concurrently against it. It is only read, so the
+ * workers share it without locking. Results are written as each request finishes.
+ * Students asking for the same courses and constraints share one search through a
+ * {@link ScheduleCache}, so schedules list their courses sorted by ID.
+ *
+ * Request file, one student per line ('#' starts a comment):
+ *
+ *   s1001: ENGG*2100 CIS*1300 MATH*1200
+ *   s1002: ENGG*2100 CIS*1300; earliest=09:00 latest=17:00 open
+ *
+ * Output, one tab-separated line per request: student, status (OK, INFEASIBLE or ERROR),
+ * latency in ms, the number of schedules written (with a trailing + when there were more),
+ * then each schedule as course/section pairs.
+ *
+ * Usage: BatchScheduler catalogue requests [output] [threads] [schedulesPerStudent]
+ */
+public class BatchScheduler {
+    // Bound on schedules held across all cached course sets
+    private static final long CACHED_SCHEDULES = 1_000_000L;
+
+    private final ColumnarCatalogue catalogue;
+    private final CompatibilityIndex index;
+    private final ScheduleCache cache;
+    private final int schedulesPerStudent;
+
+    public BatchScheduler(List<Course> courses, int schedulesPerStudent) {
+        this(ColumnarCatalogue.of(courses), schedulesPerStudent);
+    }
+
+    // Only the requested courses are ever built as objects.
+    public BatchScheduler(ColumnarCatalogue catalogue, int schedulesPerStudent) {
+        this.catalogue = catalogue;
+        this.index = new CompatibilityIndex(catalogue);
+        this.cache = new ScheduleCache(index, 0, CACHED_SCHEDULES);
+        this.schedulesPerStudent = schedulesPerStudent;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchScheduler catalogue requests [output] [threads] [schedulesPerStudent]");
+            System.exit(2);
+        }
+        String output = args.length > 2 && !args[2].equals("-") ? args[2] : null;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int schedulesPerStudent = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+        long start = System.nanoTime();
+        ColumnarCatalogue catalogue = CatalogueLoader.loadCatalogue(args[0]);
+        BatchScheduler scheduler = new BatchScheduler(catalogue, schedulesPerStudent);
+        System.err.printf("Loaded %d courses in %.1f ms%n", catalogue.getCourseCount(), (System.nanoTime() - start) / 1e6);
+
+        try (BufferedReader requests = Files.newBufferedReader(Paths.get(args[1]));
+             Writer out = output == null
+                     ? new BufferedWriter(new OutputStreamWriter(System.out))
+                     : Files.newBufferedWriter(Paths.get(output))) {
+            scheduler.run(requests, out, threads);
+        }
+    }
+
+    /**
+     * Solves every request on a pool of the given size and writes each result line as soon
+     * as it is ready, so output order follows completion order. A summary goes to stderr.
+     */
+    public void run(BufferedReader requests, Writer out, int threads) throws IOException, InterruptedException {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = requests.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                lines.add(line);
+            }
+        }
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long[] latencies = new long[lines.size()];
+        try {
+            CompletionService<Result> completed = new ExecutorCompletionService<>(pool);
+            for (String request : lines) {
+                completed.submit(() -> solve(request));
+            }
+            for (int i = 0; i < lines.size(); i++) {
+                Result result;
+                try {
+                    result = completed.take().get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Request failed unexpectedly", e.getCause());
+                }
+                latencies[i] = result.nanos;
+                out.write(result.line);
+                out.write('\n');
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.err.printf("%d requests in %.1f s on %d threads: %.0f requests/s%n",
+                lines.size(), elapsed / 1e9, threads, lines.size() / Math.max(1e-9, elapsed / 1e9));
+        if (latencies.length > 0) {
+            System.err.printf("Latency ms: p50 %.2f, p95 %.2f, p99 %.2f, max %.2f%n",
+                    percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.95) / 1e6,
+                    percentile(latencies, 0.99) / 1e6, latencies[latencies.length - 1] / 1e6);
+        }
+        System.err.printf("Cache: %d hits, %d misses, %d evictions%n", cache.getHits(), cache.getMisses(), cache.getEvictions());
+    }
+
+    // Never throws: problems with the request itself become an ERROR line.
+    Result solve(String request) {
+        long start = System.nanoTime();
+        String student = request;
+        StringBuilder sb = new StringBuilder();
+        try {
+            int colon = request.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Expected 'student: courses'");
+            }
+            student = request.substring(0, colon).trim();
+            String courseList = request.substring(colon + 1);
+            String options = "";
+            int semicolon = courseList.indexOf(';');
+            if (semicolon >= 0) {
+                options = courseList.substring(semicolon + 1);
+                courseList = courseList.substring(0, semicolon);
+            }
+
+            List<Course> courses = new ArrayList<>();
+            for (String courseId : courseList.trim().split("\\s+")) {
+                Course course = catalogue.findCourse(courseId);
+                if (course == null) {
+                    throw new IllegalArgumentException("Unknown course " + courseId);
+                }
+                courses.add(course);
+            }
+            ScheduleConstraints constraints = parseConstraints(options);
+
+            // One more than needed, only to tell whether there were more
+            List<List<Section>> schedules = cache.getCombinations(courses, constraints, schedulesPerStudent + 1L);
+            if (schedules.isEmpty()) {
+                ScheduleCombinations scheduleCombinations = new ScheduleCombinations(courses, index);
+                scheduleCombinations.setConstraints(constraints);
+                scheduleCombinations.checkFeasibility(); // Throws with the courses to blame, where it can tell
+                throw new InfeasibleScheduleException("No feasible schedule for " + courseList.trim(), courses);
+            }
+            int written = Math.min(schedulesPerStudent, schedules.size());
+            StringBuilder found = new StringBuilder();
+            for (List<Section> schedule : schedules.subList(0, written)) {
+                found.append('\t');
+                for (Section section : schedule) {
+                    found.append(section.getCourse().getCourseId()).append('/').append(section.getSectionNumber()).append(' ');
+                }
+                found.setLength(found.length() - 1);
+            }
+            sb.append("OK\t").append(elapsedMillis(start)).append('\t').append(written)
+              .append(schedules.size() > written ? "+" : "").append(found);
+        } catch (InfeasibleScheduleException e) {
+            sb.setLength(0);
+            sb.append("INFEASIBLE\t").append(elapsedMillis(start)).append("\t0\t").append(e.getMessage());
+        } catch (RuntimeException e) {
+            sb.setLength(0);
+            sb.append("ERROR\t").append(elapsedMillis(start)).append("\t0\t").append(e.getMessage());
+        }
+        return new Result(student + '\t' + sb, System.nanoTime() - start);
+    }
+
+    // Space-separated earliest=hh:mm, latest=hh:mm and open (open seats only).
+    private static ScheduleConstraints parseConstraints(String options) {
+        LocalTime earliest = null;
+        LocalTime latest = null;
+        boolean open = false;
+        for (String option : options.trim().split("\\s+")) {
+            try {
+                if (option.startsWith("earliest=")) {
+                    earliest = LocalTime.parse(option.substring("earliest=".length()));
+                } else if (option.startsWith("latest=")) {
+                    latest = LocalTime.parse(option.substring("latest=".length()));
+                } else if (option.equals("open")) {
+                    open = true;
+                } else if (!option.isEmpty()) {
+                    throw new IllegalArgumentException("Unknown option " + option);
+                }
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid time in " + option);
+            }
+        }
+        return new ScheduleConstraints(earliest, latest, open);
+    }
+
+    private static String elapsedMillis(long start) {
+        return String.format(Locale.ROOT, "%.2f", (System.nanoTime() - start) / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    static class Result {
+        final String line;
+        final long nanos;
+
+        Result(String line, long nanos) {
+            this.line = line;
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package rachwal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
+
+/**
+ * Loads a catalogue file in either supported format, going through the binary snapshot
+ * next to it when that is still up to date.
+ */
+public final class CatalogueLoader {
+
+    private CatalogueLoader() {
+    }
+
+    // Reads the snapshot if it matches the source; otherwise parses and writes a fresh one.
+    public static List<Course> load(String filePath) throws IOException {
+        Path source = Paths.get(filePath);
+        List<Course> courses = CatalogueSnapshot.read(source);
+        if (courses != null) {
+            return courses;
+        }
+        return parseAndSnapshot(source);
+    }
+
+    // As load(), but keeps the catalogue in columns; courses are built only when asked for.
+    public static ColumnarCatalogue loadCatalogue(String filePath) throws IOException {
+        Path source = Paths.get(filePath);
+        ColumnarCatalogue catalogue = CatalogueSnapshot.readCatalogue(source);
+        if (catalogue != null) {
+            return catalogue;
+        }
+        return ColumnarCatalogue.copyOf(parseAndSnapshot(source));
+    }
+
+    // Registrar JSON feeds start with '{'; anything else is the "Course ID:" text format.
+    public static List<Course> parse(String filePath) throws IOException {
+        return parse(filePath, null);
+    }
+
+    /**
+     * As parse(String), also feeding every byte the parser reads into the checksum when one
+     * is given, so a snapshot records the hash of exactly what was parsed.
+     */
+    public static List<Course> parse(String filePath, Checksum checksum) throws IOException {
+        try (Reader reader = Files.newBufferedReader(Paths.get(filePath))) {
+            int c;
+            do {
+                c = reader.read();
+            } while (c != -1 && Character.isWhitespace(c));
+            if (c == '{') {
+                return new RegistrarFeedParser().parseCoursesFromFile(filePath, checksum);
+            }
+        }
+        return new ScheduleParser().parseCoursesFromFile(filePath, checksum);
+    }
+
+    // Opens the file as UTF-8 like Files.newBufferedReader, passing the bytes read through the checksum if any.
+    static BufferedReader newReader(String filePath, Checksum checksum) throws IOException {
+        Path path = Paths.get(filePath);
+        if (checksum == null) {
+            return Files.newBufferedReader(path);
+        }
+        // A fresh decoder reports malformed input, as Files.newBufferedReader does
+        return new BufferedReader(new InputStreamReader(new CheckedInputStream(Files.newInputStream(path), checksum),
+                StandardCharsets.UTF_8.newDecoder()));
+    }
+
+    private static List<Course> parseAndSnapshot(Path source) throws IOException {
+        // Taken before reading, so an edit made while parsing shows up as a changed time
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        Checksum checksum = CatalogueSnapshot.newChecksum();
+        List<Course> courses = parse(source.toString(), checksum);
+        try {
+            CatalogueSnapshot.write(source, size, modified, checksum.getValue(), courses);
+        } catch (IOException e) {
+            // A read-only directory just means no snapshot; the parsed catalogue is still good
+            System.err.println("Could not write catalogue snapshot: " + e.getMessage());
+        }
+        return courses;
+    }
+}
@@ -0,0 +1,287 @@
+package rachwal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * Compact binary copy of a parsed catalogue, stored next to the source file. The header
+ * records the source's size, its modification time from before it was parsed, and the
+ * CRC32C of the bytes the parser read. A source whose size and modification time both
+ * still match is trusted without being hashed; one whose time alone differs (touched or
+ * copied) is hashed, and the snapshot is used only if the hash still matches, after which
+ * the new time is written into the header so the next load need not hash again. Counts and
+ * lengths are checked against the bytes left before anything is allocated.
+ *
+ * Snapshots are read into a heap buffer rather than mapped: a mapping keeps the file open
+ * on Windows until it is collected, which would make replacing the snapshot fail.
+ *
+ * Layout: header, a table of every distinct string, then courses, sections, meetings and
+ * faculty, with strings stored as table indexes (-1 for null). It is read straight into a
+ * {@link ColumnarCatalogue}.
+ */
+public final class CatalogueSnapshot {
+    private static final long MAGIC = 0x5343484544534e50L; // "SCHEDSNP"
+    private static final int VERSION = 2; // 2: meetings carry their own dates
+    private static final String SUFFIX = ".snapshot";
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NO_TIME = -1;
+    private static final long MODIFIED_OFFSET = 20; // after the magic, version and size
+
+    private CatalogueSnapshot() {
+    }
+
+    public static Path snapshotPathFor(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    // Reads the snapshot for the source if it is still valid, otherwise returns null.
+    public static List<Course> read(Path source) throws IOException {
+        ColumnarCatalogue catalogue = readCatalogue(source);
+        return catalogue == null ? null : new ArrayList<>(catalogue.getCourses());
+    }
+
+    // As read(), but leaves the catalogue in columns; courses are built only when asked for.
+    public static ColumnarCatalogue readCatalogue(Path source) throws IOException {
+        Path snapshot = snapshotPathFor(source);
+        if (!Files.isReadable(snapshot)) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+            if (buffer.remaining() < 36 || buffer.getLong() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long size = buffer.getLong();
+            long modified = buffer.getLong();
+            long hash = buffer.getLong();
+            if (size != Files.size(source)) {
+                return null;
+            }
+            long sourceModified = Files.getLastModifiedTime(source).toMillis();
+            if (modified == sourceModified) {
+                return readCatalogue(buffer);
+            }
+            if (hash != hash(source)) {
+                return null;
+            }
+            ColumnarCatalogue catalogue = readCatalogue(buffer);
+            recordModified(snapshot, sourceModified); // So the next load trusts the time again
+            return catalogue;
+        } catch (RuntimeException e) {
+            // Truncated or corrupt snapshot: treat it as missing and let the caller reparse
+            return null;
+        }
+    }
+
+    // Overwrites the source time in the header in place. A reader that sees it half written
+    // just finds a time that does not match and checks the hash.
+    private static void recordModified(Path snapshot, long modified) {
+        ByteBuffer time = ByteBuffer.allocate(Long.BYTES).putLong(0, modified);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            channel.write(time, MODIFIED_OFFSET);
+        } catch (IOException e) {
+            // A read-only snapshot only costs a hash on the next load
+        }
+    }
+
+    /**
+     * Writes the snapshot atomically, so a concurrent reader never sees half a file. The size
+     * and modification time are the source's as taken before parsing, and the hash is of the
+     * bytes the parser read (see {@link CatalogueLoader#parse(String, Checksum)}).
+     */
+    public static void write(Path source, long size, long modified, long hash, List<Course> courses) throws IOException {
+        Path snapshot = snapshotPathFor(source);
+        Path temp = Files.createTempFile(snapshot.toAbsolutePath().getParent(), snapshot.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeLong(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(size);
+                out.writeLong(modified);
+                out.writeLong(hash);
+                writeCourses(out, courses);
+            }
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // The checksum snapshots record; feed it the source's bytes as they are parsed.
+    public static Checksum newChecksum() {
+        return new CRC32C();
+    }
+
+    static long hash(Path source) throws IOException {
+        Checksum crc = newChecksum();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void writeCourses(DataOutputStream out, List<Course> courses) throws IOException {
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        for (Course course : courses) {
+            collect(course.getCourseId(), strings, table);
+            for (Section section : course.getSections()) {
+                collect(section.getTitle(), strings, table);
+                collect(section.getLocation(), strings, table);
+                for (Meeting meeting : section.getMeetings()) {
+                    collect(meeting.getType(), strings, table);
+                    collect(meeting.getRoom(), strings, table);
+                }
+                for (Faculty faculty : section.getFaculties()) {
+                    collect(faculty.getFacultyId(), strings, table);
+                    collect(faculty.getFacultyName(), strings, table);
+                }
+            }
+        }
+
+        out.writeInt(table.size());
+        for (String string : table) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(courses.size());
+        for (Course course : courses) {
+            out.writeInt(ref(course.getCourseId(), strings));
+            out.writeInt(course.getSections().size());
+            for (Section section : course.getSections()) {
+                out.writeInt(section.getSectionNumber());
+                out.writeInt(ref(section.getTitle(), strings));
+                out.writeInt(ref(section.getLocation(), strings));
+                out.writeInt(section.getCapacity());
+                out.writeInt(section.getEnrolled());
+                out.writeInt(section.getAvailable());
+                out.writeLong(section.getStartDate() == null ? NO_DATE : section.getStartDate().toEpochDay());
+                out.writeLong(section.getEndDate() == null ? NO_DATE : section.getEndDate().toEpochDay());
+                out.writeInt(section.getMeetings().size());
+                for (Meeting meeting : section.getMeetings()) {
+                    out.writeInt(ref(meeting.getType(), strings));
+                    out.writeInt(ref(meeting.getRoom(), strings));
+                    out.writeInt(meeting.getStartTime() == null ? NO_TIME : meeting.getStartTime().toSecondOfDay());
+                    out.writeInt(meeting.getEndTime() == null ? NO_TIME : meeting.getEndTime().toSecondOfDay());
+                    List<Integer> days = meeting.getDays();
+                    out.writeInt(days == null ? -1 : days.size());
+                    if (days != null) {
+                        for (int day : days) {
+                            out.writeInt(day);
+                        }
+                    }
+                    out.writeLong(meeting.getStartDate() == null ? NO_DATE : meeting.getStartDate().toEpochDay());
+                    out.writeLong(meeting.getEndDate() == null ? NO_DATE : meeting.getEndDate().toEpochDay());
+                }
+                out.writeInt(section.getFaculties().size());
+                for (Faculty faculty : section.getFaculties()) {
+                    out.writeInt(ref(faculty.getFacultyId(), strings));
+                    out.writeInt(ref(faculty.getFacultyName(), strings));
+                }
+            }
+        }
+    }
+
+    private static ColumnarCatalogue readCatalogue(ByteBuffer in) {
+        String[] table = new String[count(in, Integer.BYTES)];
+        for (int i = 0; i < table.length; i++) {
+            byte[] bytes = new byte[count(in, 1)];
+            in.get(bytes);
+            table[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        ColumnarCatalogue.Builder catalogue = new ColumnarCatalogue.Builder();
+        int courseCount = count(in, 2 * Integer.BYTES);
+        for (int c = 0; c < courseCount; c++) {
+            catalogue.addCourse(string(in.getInt(), table));
+            int sectionCount = count(in, 9 * Integer.BYTES);
+            for (int s = 0; s < sectionCount; s++) {
+                int number = in.getInt();
+                String title = string(in.getInt(), table);
+                String location = string(in.getInt(), table);
+                int capacity = in.getInt();
+                int enrolled = in.getInt();
+                int available = in.getInt();
+                int startDate = date(in.getLong());
+                int endDate = date(in.getLong());
+                catalogue.addSection(number, title, location, capacity, enrolled, available, startDate, endDate);
+                int meetingCount = count(in, 5 * Integer.BYTES);
+                for (int m = 0; m < meetingCount; m++) {
+                    String type = string(in.getInt(), table);
+                    String room = string(in.getInt(), table);
+                    int startTime = in.getInt();
+                    int endTime = in.getInt();
+                    int dayCount = in.getInt();
+                    List<Integer> days = null;
+                    if (dayCount != -1) {
+                        days = new ArrayList<>(checkCount(in, dayCount, Integer.BYTES));
+                        for (int d = 0; d < dayCount; d++) {
+                            days.add(in.getInt());
+                        }
+                    }
+                    int meetingStartDate = date(in.getLong());
+                    int meetingEndDate = date(in.getLong());
+                    catalogue.addMeeting(type, room, startTime, endTime, days, meetingStartDate, meetingEndDate);
+                }
+                int facultyCount = count(in, 2 * Integer.BYTES);
+                for (int f = 0; f < facultyCount; f++) {
+                    catalogue.addFaculty(string(in.getInt(), table), string(in.getInt(), table));
+                }
+            }
+        }
+        return catalogue.build();
+    }
+
+    /**
+     * Reads a count or length and checks that the rest of the snapshot could hold that many
+     * items of at least the given size, so a corrupt file cannot force a huge allocation.
+     */
+    private static int count(ByteBuffer in, int minBytesEach) {
+        return checkCount(in, in.getInt(), minBytesEach);
+    }
+
+    private static int checkCount(ByteBuffer in, int count, int minBytesEach) {
+        if (count < 0 || count > in.remaining() / minBytesEach) {
+            throw new IllegalStateException("Corrupt snapshot: count " + count + " with " + in.remaining() + " bytes left");
+        }
+        return count;
+    }
+
+    private static void collect(String value, Map<String, Integer> strings, List<String> table) {
+        if (value != null && !strings.containsKey(value)) {
+            strings.put(value, table.size());
+            table.add(value);
+        }
+    }
+
+    private static int ref(String value, Map<String, Integer> strings) {
+        return value == null ? -1 : strings.get(value);
+    }
+
+    private static String string(int ref, String[] table) {
+        return ref < 0 ? null : table[ref];
+    }
+
+    private static int date(long epochDay) {
+        return epochDay == NO_DATE ? ColumnarCatalogue.NO_DATE : Math.toIntExact(epochDay);
+    }
+}
@@ -0,0 +1,600 @@
+package rachwal;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable struct-of-arrays copy of a catalogue. Courses, sections, meetings and faculty
+ * are rows in parallel primitive columns. Children are found through offset arrays, every
+ * string is an index into one dictionary, and days are a byte mask per meeting. Times are
+ * stored as seconds of the day and dates as epoch days. Each meeting keeps its own date
+ * range, so half-term sections in the same weekly slot do not clash.
+ *
+ * Sections are numbered densely with the sections of each course consecutive, the same ids
+ * {@link CompatibilityIndex} uses. Clash checks run on the columns alone. Course, Section
+ * and Meeting objects are built only when a course is first asked for, and the same objects
+ * are returned from then on. A catalogue made with {@link #of(List)} keeps the objects it
+ * was built from instead, so seat updates applied to them stay visible.
+ *
+ * Safe for concurrent use.
+ */
+public final class ColumnarCatalogue {
+    static final int NO_TIME = -1;
+    static final int NO_DATE = Integer.MIN_VALUE;
+    static final int MASKED_DAYS = 7;             // days 0..6 fit the mask
+    static final int DAYS = 0x7f;
+    static final int IRREGULAR = 0x80;           // day mask flag: the days are kept as a list
+
+    private final String[] strings;
+    private final Map<String, Integer> coursesById;
+
+    private final int[] courseId;
+    private final int[] courseStart;       // sections of course c are courseStart[c] until courseStart[c + 1]
+
+    private final int[] sectionCourse;
+    private final int[] sectionNumber;
+    private final int[] sectionTitle;
+    private final int[] sectionLocation;
+    private final int[] capacity;
+    private final int[] enrolled;
+    private final int[] available;
+    private final int[] startDate;
+    private final int[] endDate;
+    private final byte[] sectionDays;      // union of its meetings' clash masks
+    private final int[] meetingStart;      // meetings of section s are meetingStart[s] until meetingStart[s + 1]
+    private final int[] facultyStart;
+
+    private final int[] meetingType;
+    private final int[] meetingRoom;
+    private final int[] startTime;
+    private final int[] endTime;
+    private final byte[] dayMask;          // bit d set for day d, or IRREGULAR
+    private final byte[] clashMask;        // dayMask for meetings that can clash, 0 for the rest
+    private final int[] meetingStartDate;  // NO_DATE for no limit
+    private final int[] meetingEndDate;
+    private final int[] meetingSection;
+    private final Map<Integer, List<Integer>> irregularDays; // null, unsorted, repeated or out-of-range days
+
+    private final int[] facultyId;
+    private final int[] facultyName;
+
+    private final AtomicReferenceArray<Course> materialized;
+    // Course and Section keep identity equality, so these are identity maps that searches
+    // can read without locking. Entries are only added while holding the catalogue's lock.
+    private final Map<Course, Integer> courseIndexes = new ConcurrentHashMap<>();
+    private final Map<Section, Integer> sectionIndexes = new ConcurrentHashMap<>();
+
+    private ColumnarCatalogue(Builder builder) {
+        strings = builder.strings.toArray(new String[0]);
+        courseId = builder.courseId.toArray();
+        courseStart = builder.courseStart.toArray(builder.sectionNumber.size);
+        sectionCourse = builder.sectionCourse.toArray();
+        sectionNumber = builder.sectionNumber.toArray();
+        sectionTitle = builder.sectionTitle.toArray();
+        sectionLocation = builder.sectionLocation.toArray();
+        capacity = builder.capacity.toArray();
+        enrolled = builder.enrolled.toArray();
+        available = builder.available.toArray();
+        startDate = builder.startDate.toArray();
+        endDate = builder.endDate.toArray();
+        meetingStart = builder.meetingStart.toArray(builder.meetingType.size);
+        facultyStart = builder.facultyStart.toArray(builder.facultyId.size);
+        meetingType = builder.meetingType.toArray();
+        meetingRoom = builder.meetingRoom.toArray();
+        startTime = builder.startTime.toArray();
+        endTime = builder.endTime.toArray();
+        dayMask = Arrays.copyOf(builder.dayMask, builder.meetingType.size);
+        meetingStartDate = builder.meetingStartDate.toArray();
+        meetingEndDate = builder.meetingEndDate.toArray();
+        irregularDays = builder.irregularDays;
+        facultyId = builder.facultyId.toArray();
+        facultyName = builder.facultyName.toArray();
+
+        clashMask = new byte[dayMask.length];
+        for (int m = 0; m < clashMask.length; m++) {
+            if (startTime[m] != NO_TIME && endTime[m] != NO_TIME && startTime[m] < endTime[m]) {
+                clashMask[m] = dayMask[m];
+            }
+        }
+        sectionDays = new byte[sectionNumber.length];
+        meetingSection = new int[dayMask.length];
+        for (int s = 0; s < sectionDays.length; s++) {
+            int days = 0;
+            for (int m = meetingStart[s]; m < meetingStart[s + 1]; m++) {
+                days |= clashMask[m];
+                meetingSection[m] = s;
+            }
+            sectionDays[s] = (byte) days;
+        }
+        coursesById = new HashMap<>(courseId.length * 2);
+        for (int c = 0; c < courseId.length; c++) {
+            coursesById.putIfAbsent(string(courseId[c]), c);
+        }
+        materialized = new AtomicReferenceArray<>(courseId.length);
+    }
+
+    // Keeps the given objects as the catalogue's courses and sections.
+    public static ColumnarCatalogue of(List<Course> courses) {
+        ColumnarCatalogue catalogue = copyOf(courses);
+        synchronized (catalogue) {
+            for (int c = 0; c < courses.size(); c++) {
+                catalogue.register(c, courses.get(c));
+            }
+        }
+        return catalogue;
+    }
+
+    // Copies the courses into columns without holding on to them.
+    public static ColumnarCatalogue copyOf(List<Course> courses) {
+        Builder builder = new Builder();
+        for (Course course : courses) {
+            builder.addCourse(course.getCourseId());
+            for (Section section : course.getSections()) {
+                builder.addSection(section.getSectionNumber(), section.getTitle(), section.getLocation(),
+                        section.getCapacity(), section.getEnrolled(), section.getAvailable(),
+                        epochDay(section.getStartDate()), epochDay(section.getEndDate()));
+                for (Meeting meeting : section.getMeetings()) {
+                    builder.addMeeting(meeting.getType(), meeting.getRoom(), secondOfDay(meeting.getStartTime()),
+                            secondOfDay(meeting.getEndTime()), meeting.getDays(),
+                            epochDay(meeting.getStartDate()), epochDay(meeting.getEndDate()));
+                }
+                for (Faculty faculty : section.getFaculties()) {
+                    builder.addFaculty(faculty.getFacultyId(), faculty.getFacultyName());
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    public int getCourseCount() {
+        return courseId.length;
+    }
+
+    public int getSectionCount() {
+        return sectionNumber.length;
+    }
+
+    public int getMeetingCount() {
+        return meetingType.length;
+    }
+
+    // Index of the course with this ID, or -1. Does not build the course.
+    public int indexOfCourse(String id) {
+        Integer c = coursesById.get(id);
+        return c == null ? -1 : c;
+    }
+
+    public String getCourseId(int course) {
+        return string(courseId[course]);
+    }
+
+    // The course with this ID, built on first use, or null if there is none.
+    public Course findCourse(String id) {
+        int c = indexOfCourse(id);
+        return c < 0 ? null : getCourse(c);
+    }
+
+    public Course getCourse(int course) {
+        Course existing = materialized.get(course);
+        if (existing != null) {
+            return existing;
+        }
+        Course built = materialize(course);
+        synchronized (this) {
+            existing = materialized.get(course);
+            if (existing != null) {
+                return existing; // Another thread got there first; keep one object per course
+            }
+            register(course, built);
+        }
+        return built;
+    }
+
+    // Every course, built as the list is read.
+    public List<Course> getCourses() {
+        return new AbstractList<Course>() {
+            @Override
+            public Course get(int index) {
+                return getCourse(index);
+            }
+
+            @Override
+            public int size() {
+                return courseId.length;
+            }
+        };
+    }
+
+    public Section getSection(int section) {
+        int course = sectionCourse[section];
+        return getCourse(course).getSections().get(section - courseStart[course]);
+    }
+
+    // Index of a course or section returned by this catalogue, or -1 for any other object.
+    public int indexOf(Course course) {
+        Integer c = course == null ? null : courseIndexes.get(course);
+        return c == null ? -1 : c;
+    }
+
+    public int indexOf(Section section) {
+        Integer s = section == null ? null : sectionIndexes.get(section);
+        return s == null ? -1 : s;
+    }
+
+    int courseOf(int section) {
+        return sectionCourse[section];
+    }
+
+    int firstSectionOf(int course) {
+        return courseStart[course];
+    }
+
+    int endSectionOf(int course) {
+        return courseStart[course + 1];
+    }
+
+    int meetingStartOf(int section) {
+        return meetingStart[section];
+    }
+
+    int meetingEndOf(int section) {
+        return meetingStart[section + 1];
+    }
+
+    int sectionOfMeeting(int meeting) {
+        return meetingSection[meeting];
+    }
+
+    int startTimeOf(int meeting) {
+        return startTime[meeting];
+    }
+
+    int endTimeOf(int meeting) {
+        return endTime[meeting];
+    }
+
+    // The meeting's day mask if it can clash at all, otherwise 0.
+    int clashMaskOf(int meeting) {
+        return clashMask[meeting];
+    }
+
+    // True if the meeting has a time and falls on a day that has no weekday bit.
+    boolean hasUnmaskedDay(int meeting) {
+        List<Integer> days = (clashMask[meeting] & IRREGULAR) == 0 ? null : irregularDays.get(meeting);
+        if (days == null) {
+            return false;
+        }
+        for (int day : days) {
+            if (day < 0 || day >= MASKED_DAYS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Mask of the weekdays on which both meetings run, by their date ranges alone.
+    int sharedWeekdays(int meeting1, int meeting2) {
+        return weekdays(Math.max(firstDay(meetingStartDate[meeting1]), firstDay(meetingStartDate[meeting2])),
+                Math.min(lastDay(meetingEndDate[meeting1]), lastDay(meetingEndDate[meeting2])));
+    }
+
+    /**
+     * True if a meeting of one section shares a day with a meeting of the other, their
+     * times intersect and both run on a date falling on that day. Meetings without a time
+     * or days, or that do not end after they start, never clash.
+     */
+    public boolean conflicts(int section1, int section2) {
+        // An irregular meeting's in-range days are in its mask as well, so two meetings
+        // with no mask bit in common cannot share a day. That rules out most pairs.
+        if ((sectionDays[section1] & sectionDays[section2]) == 0) {
+            return false;
+        }
+        for (int m1 = meetingStart[section1]; m1 < meetingStart[section1 + 1]; m1++) {
+            if (clashMask[m1] == 0) {
+                continue;
+            }
+            for (int m2 = meetingStart[section2]; m2 < meetingStart[section2 + 1]; m2++) {
+                if (meetingsClash(m1, m2)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    boolean meetingsClash(int meeting1, int meeting2) {
+        int shared = clashMask[meeting1] & clashMask[meeting2];
+        if (shared == 0 || startTime[meeting1] >= endTime[meeting2] || startTime[meeting2] >= endTime[meeting1]) {
+            return false;
+        }
+        int weekdays = sharedWeekdays(meeting1, meeting2);
+        // In-range days of irregular meetings are in the mask too; only the rest need the lists.
+        return (shared & weekdays) != 0
+                || ((shared & IRREGULAR) != 0 && weekdays != 0 && shareUnmaskedDay(meeting1, meeting2));
+    }
+
+    // Both meetings have days outside the mask; compare the days that have no weekday bit.
+    private boolean shareUnmaskedDay(int meeting1, int meeting2) {
+        List<Integer> list1 = irregularDays.get(meeting1);
+        List<Integer> list2 = irregularDays.get(meeting2);
+        if (list1 == null || list2 == null) {
+            return false;
+        }
+        for (int day : list1) {
+            if ((day < 0 || day >= MASKED_DAYS) && list2.contains(day)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The distinct (day, start, end, dates) slots the section's meetings can clash in, as a
+     * sorted list. Sections of a course with equal footprints clash with exactly the same
+     * sections, so one can stand in for the other in a search.
+     */
+    List<Long> footprint(int section) {
+        List<long[]> slots = new ArrayList<>();
+        for (int m = meetingStart[section]; m < meetingStart[section + 1]; m++) {
+            List<Integer> days = clashMask[m] == 0 ? null : days(m);
+            if (days == null) {
+                continue; // Never clashes, so it does not distinguish sections
+            }
+            long dates = ((long) meetingStartDate[m] << 32) | (meetingEndDate[m] & 0xffffffffL);
+            for (int day : days) {
+                long[] slot = {((long) day << 40) | ((long) startTime[m] << 20) | endTime[m], dates};
+                boolean seen = false;
+                for (long[] other : slots) {
+                    seen |= Arrays.equals(slot, other);
+                }
+                if (!seen) {
+                    slots.add(slot);
+                }
+            }
+        }
+        slots.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        List<Long> footprint = new ArrayList<>(slots.size() * 2);
+        for (long[] slot : slots) {
+            footprint.add(slot[0]);
+            footprint.add(slot[1]);
+        }
+        return footprint;
+    }
+
+    private List<Integer> days(int meeting) {
+        if ((dayMask[meeting] & IRREGULAR) != 0) {
+            return irregularDays.get(meeting);
+        }
+        List<Integer> days = new ArrayList<>(Integer.bitCount(dayMask[meeting]));
+        for (int day = 0; day < MASKED_DAYS; day++) {
+            if ((dayMask[meeting] & (1 << day)) != 0) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    private Course materialize(int c) {
+        Course course = new Course();
+        course.setCourseId(string(courseId[c]));
+        List<Section> sections = new ArrayList<>(courseStart[c + 1] - courseStart[c]);
+        for (int s = courseStart[c]; s < courseStart[c + 1]; s++) {
+            Section section = new Section();
+            section.setCourse(course);
+            section.setSectionNumber(sectionNumber[s]);
+            section.setTitle(string(sectionTitle[s]));
+            section.setLocation(string(sectionLocation[s]));
+            section.setCapacity(capacity[s]);
+            section.setEnrolled(enrolled[s]);
+            section.setAvailable(available[s]);
+            section.setStartDate(startDate[s] == NO_DATE ? null : LocalDate.ofEpochDay(startDate[s]));
+            section.setEndDate(endDate[s] == NO_DATE ? null : LocalDate.ofEpochDay(endDate[s]));
+            List<Meeting> meetings = new ArrayList<>(meetingStart[s + 1] - meetingStart[s]);
+            for (int m = meetingStart[s]; m < meetingStart[s + 1]; m++) {
+                Meeting meeting = new Meeting();
+                meeting.setType(string(meetingType[m]));
+                meeting.setRoom(string(meetingRoom[m]));
+                meeting.setStartTime(startTime[m] == NO_TIME ? null : LocalTime.ofSecondOfDay(startTime[m]));
+                meeting.setEndTime(endTime[m] == NO_TIME ? null : LocalTime.ofSecondOfDay(endTime[m]));
+                List<Integer> days = days(m);
+                meeting.setDays(days == null ? null : new ArrayList<>(days));
+                meeting.setStartDate(meetingStartDate[m] == NO_DATE ? null : LocalDate.ofEpochDay(meetingStartDate[m]));
+                meeting.setEndDate(meetingEndDate[m] == NO_DATE ? null : LocalDate.ofEpochDay(meetingEndDate[m]));
+                meetings.add(meeting);
+            }
+            section.setMeetings(meetings);
+            for (int f = facultyStart[s]; f < facultyStart[s + 1]; f++) {
+                Faculty faculty = new Faculty();
+                faculty.setFacultyId(string(facultyId[f]));
+                faculty.setFacultyName(string(facultyName[f]));
+                section.addFaculty(faculty);
+            }
+            sections.add(section);
+        }
+        course.setSections(sections);
+        return course;
+    }
+
+    // Caller holds the lock.
+    private void register(int c, Course course) {
+        materialized.set(c, course);
+        courseIndexes.put(course, c);
+        int s = courseStart[c];
+        for (Section section : course.getSections()) {
+            sectionIndexes.put(section, s++);
+        }
+    }
+
+    private String string(int ref) {
+        return ref < 0 ? null : strings[ref];
+    }
+
+    private static int secondOfDay(LocalTime time) {
+        return time == null ? NO_TIME : time.toSecondOfDay();
+    }
+
+    private static int epochDay(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
+    // Mask of the weekdays (bit 0 for Sunday) falling between two epoch days, inclusive.
+    private static int weekdays(long first, long last) {
+        if (first > last) {
+            return 0;
+        }
+        if (first == Long.MIN_VALUE || last == Long.MAX_VALUE || last - first >= 6) {
+            return 0x7f; // A week or more includes every weekday
+        }
+        int weekdays = 0;
+        for (long date = first; date <= last; date++) {
+            weekdays |= 1 << Math.floorMod(date + 4, 7); // 1970-01-01 was a Thursday
+        }
+        return weekdays;
+    }
+
+    private static long firstDay(int date) {
+        return date == NO_DATE ? Long.MIN_VALUE : date;
+    }
+
+    private static long lastDay(int date) {
+        return date == NO_DATE ? Long.MAX_VALUE : date;
+    }
+
+    /**
+     * Appends rows in catalogue order: a course, then each of its sections followed by that
+     * section's meetings and faculty. Strings are pooled into the dictionary as they arrive.
+     */
+    static final class Builder {
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+        private final IntColumn courseId = new IntColumn();
+        private final IntColumn courseStart = new IntColumn();
+        private final IntColumn sectionCourse = new IntColumn();
+        private final IntColumn sectionNumber = new IntColumn();
+        private final IntColumn sectionTitle = new IntColumn();
+        private final IntColumn sectionLocation = new IntColumn();
+        private final IntColumn capacity = new IntColumn();
+        private final IntColumn enrolled = new IntColumn();
+        private final IntColumn available = new IntColumn();
+        private final IntColumn startDate = new IntColumn();
+        private final IntColumn endDate = new IntColumn();
+        private final IntColumn meetingStart = new IntColumn();
+        private final IntColumn facultyStart = new IntColumn();
+        private final IntColumn meetingType = new IntColumn();
+        private final IntColumn meetingRoom = new IntColumn();
+        private final IntColumn startTime = new IntColumn();
+        private final IntColumn endTime = new IntColumn();
+        private byte[] dayMask = new byte[64];
+        private final Map<Integer, List<Integer>> irregularDays = new HashMap<>();
+        private final IntColumn meetingStartDate = new IntColumn();
+        private final IntColumn meetingEndDate = new IntColumn();
+        private final IntColumn facultyId = new IntColumn();
+        private final IntColumn facultyName = new IntColumn();
+
+        void addCourse(String id) {
+            courseId.append(ref(id));
+            courseStart.append(sectionNumber.size);
+        }
+
+        void addSection(int number, String title, String location, int sectionCapacity, int sectionEnrolled,
+                        int sectionAvailable, int start, int end) {
+            if (courseId.size == 0) {
+                throw new IllegalStateException("Section " + number + " added before any course");
+            }
+            sectionCourse.append(courseId.size - 1);
+            sectionNumber.append(number);
+            sectionTitle.append(ref(title));
+            sectionLocation.append(ref(location));
+            capacity.append(sectionCapacity);
+            enrolled.append(sectionEnrolled);
+            available.append(sectionAvailable);
+            startDate.append(start);
+            endDate.append(end);
+            meetingStart.append(meetingType.size);
+            facultyStart.append(facultyId.size);
+        }
+
+        void addMeeting(String type, String room, int start, int end, List<Integer> days, int startDay, int endDay) {
+            int m = meetingType.size;
+            meetingType.append(ref(type));
+            meetingRoom.append(ref(room));
+            startTime.append(start);
+            endTime.append(end);
+            meetingStartDate.append(startDay);
+            meetingEndDate.append(endDay);
+            if (m == dayMask.length) {
+                dayMask = Arrays.copyOf(dayMask, m * 2);
+            }
+            int mask = 0;
+            boolean regular = days != null;
+            int previous = -1;
+            if (days != null) {
+                for (int day : days) {
+                    if (day >= 0 && day < MASKED_DAYS) {
+                        mask |= 1 << day;
+                    }
+                    regular &= day > previous && day < MASKED_DAYS; // rebuilt from the mask in the same order
+                    previous = day;
+                }
+            }
+            if (!regular) {
+                mask |= IRREGULAR;
+                irregularDays.put(m, days == null ? null : new ArrayList<>(days));
+            }
+            dayMask[m] = (byte) mask;
+        }
+
+        void addFaculty(String id, String name) {
+            facultyId.append(ref(id));
+            facultyName.append(ref(name));
+        }
+
+        ColumnarCatalogue build() {
+            return new ColumnarCatalogue(this);
+        }
+
+        private int ref(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer ref = stringIndexes.get(value);
+            if (ref == null) {
+                ref = strings.size();
+                stringIndexes.put(value, ref);
+                strings.add(value);
+            }
+            return ref;
+        }
+    }
+
+    private static final class IntColumn {
+        private int[] values = new int[64];
+        private int size;
+
+        void append(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        // With one more value at the end, closing the last range of an offset column.
+        int[] toArray(int end) {
+            int[] array = Arrays.copyOf(values, size + 1);
+            array[size] = end;
+            return array;
+        }
+    }
+}
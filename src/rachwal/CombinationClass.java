@@ -0,0 +1,75 @@
+package rachwal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of schedules that are identical in time: for each course, a group of sections whose
+ * meetings fall on exactly the same days and times, differing only in room, instructor or
+ * seats. Any choice of one section per group is a valid schedule, so the group product is
+ * kept as is and expanded into concrete schedules only on demand.
+ */
+public class CombinationClass implements Iterable<List<Section>> {
+    private final List<List<Section>> alternatives;
+
+    public CombinationClass(List<List<Section>> alternatives) {
+        this.alternatives = alternatives;
+    }
+
+    // One list of interchangeable sections per course, in course order.
+    public List<List<Section>> getAlternatives() {
+        return alternatives;
+    }
+
+    // The schedule made of the first section of each group.
+    public List<Section> getRepresentative() {
+        return get(0);
+    }
+
+    // Number of concrete schedules in the class.
+    public long size() {
+        long size = 1;
+        for (List<Section> group : alternatives) {
+            size *= group.size();
+        }
+        return size;
+    }
+
+    // The n-th concrete schedule; the last course's section varies fastest.
+    public List<Section> get(long n) {
+        if (n < 0 || n >= size()) {
+            throw new IndexOutOfBoundsException("Schedule " + n + " of " + size());
+        }
+        Section[] schedule = new Section[alternatives.size()];
+        for (int i = alternatives.size() - 1; i >= 0; i--) {
+            List<Section> group = alternatives.get(i);
+            schedule[i] = group.get((int) (n % group.size()));
+            n /= group.size();
+        }
+        return new ArrayList<>(Arrays.asList(schedule));
+    }
+
+    @Override
+    public Iterator<List<Section>> iterator() {
+        return new Iterator<List<Section>>() {
+            private final long size = size();
+            private long next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public List<Section> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package rachwal;
+
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * List model over the schedules themselves rather than over prepared strings. A row's text
+ * is built only when the list asks for it, which with a fixed cell size is only for the
+ * rows on screen, so the model costs nothing per schedule beyond the store it wraps.
+ */
+public class CombinationListModel extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<List<Section>> combinations;
+
+    public CombinationListModel(List<List<Section>> combinations) {
+        this.combinations = combinations;
+    }
+
+    @Override
+    public int getSize() {
+        return combinations.size();
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return format(combinations.get(index));
+    }
+
+    public List<Section> getCombination(int index) {
+        return combinations.get(index);
+    }
+
+    // Appends to the backing store with a single list event.
+    public void addAll(List<List<Section>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int first = combinations.size();
+        combinations.addAll(batch);
+        fireIntervalAdded(this, first, combinations.size() - 1);
+    }
+
+    public static String format(List<Section> combination) {
+        StringBuilder sb = new StringBuilder();
+        for (Section section : combination) {
+            sb.append("Course ID: ").append(section.getCourse().getCourseId())
+              .append(", Section Number: ").append(section.getSectionNumber())
+              .append(", Title: ").append(section.getTitle()).append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,152 @@
+package rachwal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pairwise clash table for a loaded catalogue. Every section gets a dense id, with the
+ * sections of each course numbered consecutively, and a bitset of the sections in other
+ * courses it can be taken alongside. Build it once per catalogue and share it between
+ * searches; it is not modified after construction.
+ *
+ * The table is computed from a {@link ColumnarCatalogue} through a {@link WeekdayIntervalIndex},
+ * and searches run on ids alone.
+ * Course and Section objects are only built for the courses a search is asked about.
+ *
+ * Sections of a course that meet at exactly the same times and dates, differing only in
+ * room, instructor or seats, share a time class: the id of the first of them. Any one of
+ * them can stand in for the rest when searching.
+ */
+public class CompatibilityIndex {
+    private final ColumnarCatalogue catalogue;
+    private final BitSet[] compatible;
+    private final int[] timeClass;
+
+    // Keeps the given objects, so the sections returned are the caller's own.
+    public CompatibilityIndex(List<Course> courses) {
+        this(ColumnarCatalogue.of(courses));
+    }
+
+    public CompatibilityIndex(ColumnarCatalogue catalogue) {
+        this.catalogue = catalogue;
+        int total = catalogue.getSectionCount();
+        compatible = new BitSet[total];
+        // Only the sections whose meetings overlap in the interval index are looked at, not
+        // every pair. Sections of the same course are never marked.
+        WeekdayIntervalIndex intervals = new WeekdayIntervalIndex(catalogue);
+        BitSet clashes = new BitSet(total);
+        for (int i = 0; i < total; i++) {
+            int course = catalogue.courseOf(i);
+            compatible[i] = new BitSet(total);
+            compatible[i].set(0, total);
+            compatible[i].clear(catalogue.firstSectionOf(course), catalogue.endSectionOf(course));
+            clashes.clear();
+            intervals.addConflicts(i, clashes);
+            compatible[i].andNot(clashes);
+        }
+
+        timeClass = new int[total];
+        for (int c = 0; c < catalogue.getCourseCount(); c++) {
+            Map<List<Long>, Integer> byFootprint = new HashMap<>();
+            for (int id = catalogue.firstSectionOf(c); id < catalogue.endSectionOf(c); id++) {
+                int first = id;
+                timeClass[id] = byFootprint.computeIfAbsent(catalogue.footprint(id), key -> first);
+            }
+        }
+    }
+
+    public ColumnarCatalogue getCatalogue() {
+        return catalogue;
+    }
+
+    // Builds every course that has not been built yet.
+    public List<Course> getCourses() {
+        return catalogue.getCourses();
+    }
+
+    public int getSectionCount() {
+        return catalogue.getSectionCount();
+    }
+
+    public boolean contains(Course course) {
+        return catalogue.indexOf(course) >= 0;
+    }
+
+    // Dense id of the section, or -1 if it is not part of this catalogue.
+    public int indexOf(Section section) {
+        return catalogue.indexOf(section);
+    }
+
+    public Section getSection(int id) {
+        return catalogue.getSection(id);
+    }
+
+    // First section id of the course.
+    public int firstSectionOf(Course course) {
+        return catalogue.firstSectionOf(courseIndexOf(course));
+    }
+
+    // One past the last section id of the course.
+    public int endSectionOf(Course course) {
+        return catalogue.endSectionOf(courseIndexOf(course));
+    }
+
+    // Id of the first section of the same course with the same meeting times and dates.
+    public int timeClassOf(int sectionId) {
+        return timeClass[sectionId];
+    }
+
+    public boolean isCompatible(Section section1, Section section2) {
+        return compatible[requireId(section1)].get(requireId(section2));
+    }
+
+    /**
+     * Ids of the sections in other courses that do not clash with the given section.
+     * The returned set is shared; callers must not modify it.
+     */
+    public BitSet compatibleWith(int sectionId) {
+        return compatible[sectionId];
+    }
+
+    public BitSet compatibleWith(Section section) {
+        return compatibleWith(requireId(section));
+    }
+
+    /**
+     * Sections of the course that fit alongside every section already chosen, in catalogue order.
+     */
+    public List<Section> compatibleSections(Course course, Collection<Section> chosen) {
+        int from = firstSectionOf(course);
+        int to = endSectionOf(course);
+        BitSet candidates = new BitSet(to);
+        candidates.set(from, to);
+        for (Section section : chosen) {
+            candidates.and(compatibleWith(section));
+        }
+        List<Section> result = new ArrayList<>();
+        for (int id = candidates.nextSetBit(from); id >= 0 && id < to; id = candidates.nextSetBit(id + 1)) {
+            result.add(catalogue.getSection(id));
+        }
+        return result;
+    }
+
+    private int courseIndexOf(Course course) {
+        int c = catalogue.indexOf(course);
+        if (c < 0) {
+            throw new IllegalArgumentException("Course " + course.getCourseId() + " is not in this catalogue");
+        }
+        return c;
+    }
+
+    private int requireId(Section section) {
+        int id = indexOf(section);
+        if (id < 0) {
+            throw new IllegalArgumentException("Section " + section.getSectionNumber() + " is not in this catalogue");
+        }
+        return id;
+    }
+}
@@ -0,0 +1,57 @@
+package rachwal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Courses of which a student takes between a minimum and a maximum number, e.g. "any 2 of
+ * these 6 electives" or "ENGG*2400 or not". Every allowed number is searched, so schedules
+ * with more and with fewer of the courses come back side by side. Passed to
+ * {@link ScheduleCombinations#generateCombinations(List)} alongside the required courses.
+ */
+public final class CourseGroup {
+    private final List<Course> courses;
+    private final int min;
+    private final int max;
+
+    public CourseGroup(List<Course> courses, int min, int max) {
+        if (min < 0 || min > max || max > courses.size()) {
+            throw new IllegalArgumentException("Cannot take between " + min + " and " + max + " of " + courses.size() + " courses");
+        }
+        this.courses = Collections.unmodifiableList(new ArrayList<>(courses));
+        this.min = min;
+        this.max = max;
+    }
+
+    // Exactly k of the courses.
+    public static CourseGroup choose(int k, List<Course> courses) {
+        return new CourseGroup(courses, k, k);
+    }
+
+    // Zero or one of the course: schedules without it, plus schedules with it wherever it fits.
+    public static CourseGroup optional(Course course) {
+        return new CourseGroup(Collections.singletonList(course), 0, 1);
+    }
+
+    public List<Course> getCourses() {
+        return courses;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        List<String> courseIds = new ArrayList<>();
+        for (Course course : courses) {
+            courseIds.add(course.getCourseId());
+        }
+        return (min == max ? String.valueOf(min) : min + " to " + max) + " of " + courseIds;
+    }
+}
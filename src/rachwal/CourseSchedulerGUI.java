@@ -7,6 +7,8 @@ import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
 import java.time.LocalTime;
@@ -15,6 +17,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 public class CourseSchedulerGUI extends JFrame {
     private static final long serialVersionUID = 1L;
@@ -25,9 +29,20 @@ public class CourseSchedulerGUI extends JFrame {
     private JTextField earliestStartTimeField;
     private JTextField latestEndTimeField;
     private JCheckBox availableSeatsCheckBox;
+    private JTextField courseIdField;
+    private JTextField sectionNumberField;
     private JTable scheduleTable;
     private Map<String, Color> courseColors;
-    private List<List<Section>> allCombinations;
+    private String catalogueFile; // Searched by Show Combinations; null until given or opened
+    private final Object catalogueLock = new Object(); // Guards the catalogue fields below
+    private List<Course> courses;
+    private CompatibilityIndex compatibilityIndex;
+    private String coursesPath;
+    private long coursesModified;
+    private ScheduleCombinations selection; // Courses picked with Add/Drop, edited in place
+    private SeatUpdater seatUpdater;
+
+    private enum Edit { ADD, DROP, PIN }
     
     ///////////////////////////////////////////
     private void customizeTableHeader() {
@@ -86,9 +101,13 @@ public class CourseSchedulerGUI extends JFrame {
     
 
     public CourseSchedulerGUI() {
+        this(System.getProperty("rachwal.catalogue"));
+    }
+
+    public CourseSchedulerGUI(String catalogueFile) {
+        this.catalogueFile = catalogueFile;
         createUI();
         courseColors = new HashMap<>();
-        allCombinations = new ArrayList<>();
     }
 
 
@@ -114,7 +133,8 @@ public class CourseSchedulerGUI extends JFrame {
                 int returnValue = fileChooser.showOpenDialog(null);
                 if (returnValue == JFileChooser.APPROVE_OPTION) {
                     File selectedFile = fileChooser.getSelectedFile();
-                    parseFile(selectedFile.getAbsolutePath());
+                    catalogueFile = selectedFile.getAbsolutePath();
+                    parseFile(catalogueFile);
                 }
             }
         });
@@ -133,6 +153,23 @@ public class CourseSchedulerGUI extends JFrame {
             }
         });
 
+        courseIdField = new JTextField(8);
+        sectionNumberField = new JTextField(3);
+        JButton addCourseButton = new JButton("Add Course");
+        addCourseButton.addActionListener(e -> editSelection(Edit.ADD));
+        JButton dropCourseButton = new JButton("Drop Course");
+        dropCourseButton.addActionListener(e -> editSelection(Edit.DROP));
+        JButton pinSectionButton = new JButton("Pin Section"); // An empty section number unpins
+        pinSectionButton.addActionListener(e -> editSelection(Edit.PIN));
+        JButton refreshSeatsButton = new JButton("Refresh Seats");
+        refreshSeatsButton.addActionListener(e -> {
+            JFileChooser fileChooser = new JFileChooser();
+            if (fileChooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
+                String filePath = fileChooser.getSelectedFile().getAbsolutePath();
+                showCombinations("Selected Courses", () -> refreshSeats(filePath));
+            }
+        });
+
         earliestStartTimeField = new JTextField(5);
         latestEndTimeField = new JTextField(5);
         availableSeatsCheckBox = new JCheckBox("Only show sections with available seats");
@@ -146,6 +183,14 @@ public class CourseSchedulerGUI extends JFrame {
         panel.add(openButton);
         panel.add(showCombinationsButton);
         panel.add(applyFilterButton);
+        panel.add(new JLabel("Course ID:"));
+        panel.add(courseIdField);
+        panel.add(new JLabel("Section:"));
+        panel.add(sectionNumberField);
+        panel.add(addCourseButton);
+        panel.add(dropCourseButton);
+        panel.add(pinSectionButton);
+        panel.add(refreshSeatsButton);
 
         add(panel, BorderLayout.NORTH);
         add(scrollPane, BorderLayout.CENTER);
@@ -189,9 +234,8 @@ public class CourseSchedulerGUI extends JFrame {
     
 
     private void parseFile(String filePath) {
-        ScheduleParser parser = new ScheduleParser();
         try {
-            List<Course> courses = parser.parseCoursesFromFile(filePath);
+            List<Course> courses = loadCatalogue(filePath);
             for (Course course : courses) {
                 textArea.append("Course ID: " + course.getCourseId() + "\n");
                 for (Section section : course.getSections()) {
@@ -219,55 +263,148 @@ public class CourseSchedulerGUI extends JFrame {
     }
 
     private void generateAndShowCombinations() {
-        ScheduleParser parser = new ScheduleParser();
-        try {
-            String filePath = "C:\\Users\\Charles\\Desktop\\winter.txt"; // Replace with the actual file path
-            List<Course> courses = parser.parseCoursesFromFile(filePath);
-            ScheduleCombinations scheduleCombinations = new ScheduleCombinations(courses);
+        if (catalogueFile == null) {
+            JFileChooser fileChooser = new JFileChooser();
+            if (fileChooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            catalogueFile = fileChooser.getSelectedFile().getAbsolutePath();
+        }
+        String filePath = catalogueFile;
+        showCombinations("Schedule Combinations", () -> loadCombinations(filePath));
+    }
 
-            allCombinations = scheduleCombinations.generateCombinations();
+    // Runs on the worker thread; the catalogue and its index are reused while the file is unchanged.
+    private ScheduleCombinations loadCombinations(String filePath) throws IOException {
+        synchronized (catalogueLock) {
+            loadCatalogue(filePath);
+            return new ScheduleCombinations(courses, compatibilityIndex);
+        }
+    }
 
+    // Loads the catalogue unless it is the one already loaded; a new one starts an empty selection.
+    private List<Course> loadCatalogue(String filePath) throws IOException {
+        synchronized (catalogueLock) {
+            long modified = new File(filePath).lastModified();
+            if (courses == null || !filePath.equals(coursesPath) || modified != coursesModified) {
+                courses = CatalogueLoader.load(filePath);
+                compatibilityIndex = new CompatibilityIndex(courses);
+                coursesPath = filePath;
+                coursesModified = modified;
+                seatUpdater = new SeatUpdater(courses);
+                selection = null;
+            }
             // Assign a unique color to each course
-            assignColorsToCourses(courses);
-
-            // Show combinations in a new window
-            JFrame combinationsFrame = new JFrame("Schedule Combinations");
-            combinationsFrame.setSize(800, 600);
-            combinationsFrame.setLayout(new BorderLayout());
-            DefaultListModel<String> listModel = new DefaultListModel<>();
-            JList<String> list = new JList<>(listModel);
-
-            for (List<Section> combination : allCombinations) {
-                StringBuilder sb = new StringBuilder();
-                for (Section section : combination) {
-                    sb.append("Course ID: ").append(section.getCourse().getCourseId())
-                      .append(", Section Number: ").append(section.getSectionNumber())
-                      .append(", Title: ").append(section.getTitle()).append("\n");
+            List<Course> loaded = courses;
+            SwingUtilities.invokeLater(() -> assignColorsToCourses(loaded));
+            return courses;
+        }
+    }
+
+    private void editSelection(Edit edit) {
+        ScheduleConstraints constraints = readConstraints();
+        if (constraints == null) {
+            return;
+        }
+        String courseId = courseIdField.getText().trim();
+        String sectionNumber = sectionNumberField.getText().trim();
+        showCombinations("Selected Courses", () -> editSelection(edit, courseId, sectionNumber, constraints));
+    }
+
+    /**
+     * Runs on the worker thread. Adding a course extends the schedules already found and
+     * pinning filters them; see ScheduleCombinations.addCourse for how each edit avoids a
+     * full search.
+     */
+    private List<List<Section>> editSelection(Edit edit, String courseId, String sectionNumber, ScheduleConstraints constraints) {
+        synchronized (catalogueLock) {
+            if (courses == null) {
+                throw new IllegalStateException("Open a catalogue first");
+            }
+            Course course = null;
+            for (Course candidate : courses) {
+                if (candidate.getCourseId().equals(courseId)) {
+                    course = candidate;
+                    break;
                 }
-                listModel.addElement(sb.toString());
             }
-
-            list.addListSelectionListener(event -> {
-                if (!event.getValueIsAdjusting()) {
-                    int selectedIndex = list.getSelectedIndex();
-                    if (selectedIndex != -1) {
-                        List<Section> selectedCombination = allCombinations.get(selectedIndex);
-                        displaySchedule(selectedCombination);
+            if (course == null) {
+                throw new IllegalArgumentException("No course " + courseId + " in the catalogue");
+            }
+            if (selection == null) {
+                selection = new ScheduleCombinations(new ArrayList<>(), compatibilityIndex);
+            }
+            if (!constraints.equals(selection.getConstraints())) {
+                selection.setConstraints(constraints); // Changed filters mean one full search
+            }
+            switch (edit) {
+                case ADD:
+                    return selection.addCourse(course);
+                case DROP:
+                    return selection.removeCourse(course);
+                default:
+                    if (sectionNumber.isEmpty()) {
+                        return selection.unpinCourse(course);
                     }
-                }
-            });
+                    for (Section section : course.getSections()) {
+                        if (String.valueOf(section.getSectionNumber()).equals(sectionNumber)) {
+                            return selection.pinSection(section);
+                        }
+                    }
+                    throw new IllegalArgumentException("Course " + courseId + " has no section " + sectionNumber);
+            }
+        }
+    }
 
-            JScrollPane listScrollPane = new JScrollPane(list);
-            combinationsFrame.add(listScrollPane, BorderLayout.CENTER);
-            combinationsFrame.setVisible(true);
+    // Null until a catalogue has been loaded.
+    private ScheduleCombinations newScheduleCombinations() {
+        synchronized (catalogueLock) {
+            return courses == null ? null : new ScheduleCombinations(courses, compatibilityIndex);
+        }
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Runs on the worker thread. Reads the seat counts from a newer copy of the catalogue
+     * into the loaded one, then brings the selected courses' schedules up to date without
+     * searching them all again.
+     */
+    private List<List<Section>> refreshSeats(String filePath) throws IOException {
+        List<SeatUpdate> counts = SeatUpdater.countsOf(CatalogueLoader.parse(filePath));
+        synchronized (catalogueLock) {
+            if (courses == null) {
+                throw new IllegalStateException("Open a catalogue first");
+            }
+            int changed = seatUpdater.apply(counts).size();
+            if (selection == null) {
+                return new ArrayList<>();
+            }
+            ScheduleChanges changes = selection.refreshSeats();
+            String summary = changed + " sections changed: " + changes.getRemoved().size() + " schedules removed, "
+                    + changes.getRestored().size() + " restored\n";
+            SwingUtilities.invokeLater(() -> textArea.append(summary));
+            return selection.getCombinations();
         }
     }
 
     private void applyFilters() {
-        List<List<Section>> filteredCombinations = new ArrayList<>();
+        ScheduleConstraints constraints = readConstraints();
+        if (constraints == null) {
+            return;
+        }
+        // The restrictions are per section, so the generator drops failing sections up front
+        // rather than searching everything and filtering the results afterwards.
+        showCombinations("Filtered Schedule Combinations", () -> {
+            ScheduleCombinations scheduleCombinations = newScheduleCombinations();
+            if (scheduleCombinations != null) {
+                scheduleCombinations.setConstraints(constraints);
+                scheduleCombinations.checkFeasibility(); // Names the clashing courses instead of showing an empty list
+            }
+            return scheduleCombinations;
+        });
+    }
+
+    // The filter fields as constraints, or null after telling the user a time is malformed.
+    private ScheduleConstraints readConstraints() {
         LocalTime earliestStartTime = null;
         LocalTime latestEndTime = null;
         boolean filterAvailableSeats = availableSeatsCheckBox.isSelected();
@@ -281,78 +418,133 @@ public class CourseSchedulerGUI extends JFrame {
             }
         } catch (DateTimeParseException e) {
             JOptionPane.showMessageDialog(this, "Invalid time format. Please use hh:mm format.", "Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        System.out.println("Applying filters:");
-        System.out.println("Earliest Start Time: " + earliestStartTime);
-        System.out.println("Latest End Time: " + latestEndTime);
-        System.out.println("Filter Available Seats: " + filterAvailableSeats);
-
-        for (List<Section> combination : allCombinations) {
-            System.out.println("Checking combination:");
-            for (Section section : combination) {
-                System.out.println("  Section Number: " + section.getSectionNumber() + ", Available: " + section.getAvailable());
-            }
-            if (meetsTimeAndSeatRestrictions(combination, earliestStartTime, latestEndTime, filterAvailableSeats)) {
-                filteredCombinations.add(combination);
-            }
-        }
-
-        System.out.println("Filtered combinations count: " + filteredCombinations.size());
-        displayFilteredCombinations(filteredCombinations);
-    }
-
-    private boolean meetsTimeAndSeatRestrictions(List<Section> combination, LocalTime earliestStartTime, LocalTime latestEndTime, boolean filterAvailableSeats) {
-        for (Section section : combination) {
-            if (filterAvailableSeats && section.getAvailable() <= 0) {
-                System.out.println("Section " + section.getSectionNumber() + " does not have available seats.");
-                return false;
-            }
-            for (Meeting meeting : section.getMeetings()) {
-                if (earliestStartTime != null && meeting.getStartTime().isBefore(earliestStartTime)) {
-                    System.out.println("Section " + section.getSectionNumber() + " has a meeting starting before the earliest start time.");
-                    return false;
-                }
-                if (latestEndTime != null && meeting.getEndTime().isAfter(latestEndTime)) {
-                    System.out.println("Section " + section.getSectionNumber() + " has a meeting ending after the latest end time.");
-                    return false;
-                }
-            }
+            return null;
         }
-        return true;
+        return new ScheduleConstraints(earliestStartTime, latestEndTime, filterAvailableSeats);
     }
 
-    private void displayFilteredCombinations(List<List<Section>> combinations) {
-        JFrame combinationsFrame = new JFrame("Filtered Schedule Combinations");
+    // Opens a results window straight away and fills it from a background search.
+    private void showCombinations(String title, Callable<? extends Iterable<List<Section>>> search) {
+        JFrame combinationsFrame = new JFrame(title);
         combinationsFrame.setSize(800, 600);
         combinationsFrame.setLayout(new BorderLayout());
-        DefaultListModel<String> listModel = new DefaultListModel<>();
+        CombinationListModel listModel = new CombinationListModel(new ArrayList<>());
         JList<String> list = new JList<>(listModel);
 
-        for (List<Section> combination : combinations) {
-            StringBuilder sb = new StringBuilder();
-            for (Section section : combination) {
-                sb.append("Course ID: ").append(section.getCourse().getCourseId())
-                  .append(", Section Number: ").append(section.getSectionNumber())
-                  .append(", Title: ").append(section.getTitle()).append("\n");
-            }
-            listModel.addElement(sb.toString());
-        }
-
         list.addListSelectionListener(event -> {
             if (!event.getValueIsAdjusting()) {
                 int selectedIndex = list.getSelectedIndex();
                 if (selectedIndex != -1) {
-                    List<Section> selectedCombination = combinations.get(selectedIndex);
+                    List<Section> selectedCombination = listModel.getCombination(selectedIndex);
                     displaySchedule(selectedCombination);
                 }
             }
         });
 
+        JLabel statusLabel = new JLabel("Searching...");
+        JButton cancelButton = new JButton("Cancel");
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(cancelButton, BorderLayout.EAST);
+
+        CombinationWorker worker = new CombinationWorker(search, list, listModel, statusLabel, cancelButton);
+        cancelButton.addActionListener(e -> worker.cancel(true)); // Interrupts the search; the lazy walk checks for it
+        combinationsFrame.addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                worker.cancel(true); // Nobody is looking at the results any more
+            }
+        });
+
         JScrollPane listScrollPane = new JScrollPane(list);
         combinationsFrame.add(listScrollPane, BorderLayout.CENTER);
+        combinationsFrame.add(statusPanel, BorderLayout.SOUTH);
         combinationsFrame.setVisible(true);
+        worker.execute();
+    }
+
+    /**
+     * Walks the combinations lazily on a background thread and publishes them as they are
+     * found. SwingWorker hands them to process() in batches on the event thread, so the list
+     * grows in a few updates a second however fast the search runs.
+     */
+    private class CombinationWorker extends SwingWorker<Integer, List<Section>> {
+        private final Callable<? extends Iterable<List<Section>>> search;
+        private final JList<String> list;
+        private final CombinationListModel listModel;
+        private final JLabel statusLabel;
+        private final JButton cancelButton;
+        private final long startNanos = System.nanoTime();
+
+        CombinationWorker(Callable<? extends Iterable<List<Section>>> search, JList<String> list, CombinationListModel listModel,
+                          JLabel statusLabel, JButton cancelButton) {
+            this.search = search;
+            this.list = list;
+            this.listModel = listModel;
+            this.statusLabel = statusLabel;
+            this.cancelButton = cancelButton;
+        }
+
+        @Override
+        protected Integer doInBackground() throws Exception {
+            Iterable<List<Section>> combinations = search.call();
+            int count = 0;
+            if (combinations == null) {
+                return count;
+            }
+            for (List<Section> combination : combinations) {
+                if (isCancelled()) {
+                    break;
+                }
+                publish(combination);
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        protected void process(List<List<Section>> batch) {
+            listModel.addAll(batch); // One list event per batch
+            if (list.getPrototypeCellValue() == null) {
+                // A fixed cell size lets the list lay out and paint only the visible rows;
+                // without it, it formats and measures every row on each change.
+                list.setPrototypeCellValue(listModel.getElementAt(0));
+            }
+            if (!isDone()) {
+                statusLabel.setText(String.format("Searching... %,d schedules (%,.0f/s)", listModel.getSize(), throughput()));
+            }
+        }
+
+        @Override
+        protected void done() {
+            cancelButton.setEnabled(false);
+            if (isCancelled()) {
+                statusLabel.setText(String.format("Cancelled after %,d schedules", listModel.getSize()));
+                return;
+            }
+            try {
+                int count = get();
+                statusLabel.setText(String.format("%,d schedules in %.1f s (%,.0f/s)", count, elapsedSeconds(), count / elapsedSeconds()));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof InfeasibleScheduleException) {
+                    statusLabel.setText("No schedules");
+                    JOptionPane.showMessageDialog(statusLabel, e.getCause().getMessage(), "No Schedules", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                e.printStackTrace();
+                statusLabel.setText("Search failed: " + (e.getCause() == null ? e : e.getCause()));
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+                statusLabel.setText("Search failed: " + e);
+            }
+        }
+
+        private double elapsedSeconds() {
+            return Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        }
+
+        private double throughput() {
+            return listModel.getSize() / elapsedSeconds();
+        }
     }
 
     private void displaySchedule(List<Section> combination) {
@@ -397,10 +589,12 @@ public class CourseSchedulerGUI extends JFrame {
 
     
 
+    // Usage: CourseSchedulerGUI [catalogue], or -Drachwal.catalogue=catalogue
     public static void main(String[] args) {
+        String catalogueFile = args.length > 0 ? args[0] : System.getProperty("rachwal.catalogue");
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
-                CourseSchedulerGUI ex = new CourseSchedulerGUI();
+                CourseSchedulerGUI ex = new CourseSchedulerGUI(catalogueFile);
                 ex.setVisible(true);
             }
         });
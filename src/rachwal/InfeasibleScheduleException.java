@@ -0,0 +1,22 @@
+package rachwal;
+
+import java.util.List;
+
+/**
+ * Thrown when the requested courses cannot be combined into any schedule, naming the
+ * courses responsible where a small culprit set is known.
+ */
+public class InfeasibleScheduleException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Course> conflictingCourses;
+
+    public InfeasibleScheduleException(String message, List<Course> conflictingCourses) {
+        super(message);
+        this.conflictingCourses = conflictingCourses;
+    }
+
+    public List<Course> getConflictingCourses() {
+        return conflictingCourses;
+    }
+}
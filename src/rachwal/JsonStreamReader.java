@@ -0,0 +1,444 @@
+package rachwal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A minimal pull parser for JSON. It reads through a fixed-size buffer and never builds a
+ * tree, so values the caller does not ask for are skipped without being kept in memory.
+ * Malformed input, including anything but whitespace after the root value, is reported as
+ * an IOException.
+ */
+class JsonStreamReader implements AutoCloseable {
+
+    enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private long offset; // characters consumed before buffer[0], for error messages
+    private long lines;  // line breaks read so far, for the parse metrics
+
+    // One entry per open object or array: true while the next token in an object is a name
+    private boolean[] expectingName = new boolean[32];
+    private boolean[] inObject = new boolean[32];
+    private boolean[] needsComma = new boolean[32];
+    private int depth;
+
+    private Token peeked;
+    private final StringBuilder scratch = new StringBuilder();
+
+    JsonStreamReader(Reader in) {
+        this.in = in;
+    }
+
+    Token peek() throws IOException {
+        if (peeked == null) {
+            peeked = readToken();
+        }
+        return peeked;
+    }
+
+    void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+    }
+
+    void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+    }
+
+    void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+    }
+
+    void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+    }
+
+    // True while the current object or array has more members.
+    boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    String nextName() throws IOException {
+        expect(Token.NAME);
+        return readString();
+    }
+
+    // The next string value, or the literal text of a number or boolean; null for JSON null.
+    String nextString() throws IOException {
+        Token token = peek();
+        peeked = null;
+        String value;
+        switch (token) {
+            case STRING:
+                value = readString();
+                break;
+            case NUMBER:
+            case BOOLEAN:
+                value = readLiteral(token);
+                break;
+            case NULL:
+                readLiteral(token);
+                value = null;
+                break;
+            default:
+                throw syntaxError("Expected a value but was " + token);
+        }
+        checkRootEnded();
+        return value;
+    }
+
+    int nextInt() throws IOException {
+        String value = nextString();
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected an integer but was '" + value + "'");
+        }
+    }
+
+    boolean nextBoolean() throws IOException {
+        return "true".equals(nextString());
+    }
+
+    // Skips the next value, including everything nested inside it.
+    void skipValue() throws IOException {
+        int skipDepth = 0;
+        do {
+            Token token = peek();
+            peeked = null;
+            switch (token) {
+                case BEGIN_OBJECT:
+                case BEGIN_ARRAY:
+                    skipDepth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    skipDepth--;
+                    break;
+                case NAME:
+                case STRING:
+                    skipString();
+                    break;
+                case NUMBER:
+                case BOOLEAN:
+                case NULL:
+                    readLiteral(token);
+                    break;
+                default:
+                    throw syntaxError("Unexpected end of document");
+            }
+        } while (skipDepth > 0);
+        checkRootEnded();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    // Reads up to the start of the next token; the token's content is consumed by the caller.
+    private Token readToken() throws IOException {
+        int c = nextNonWhitespace();
+        if (depth > 0) {
+            if (c == (inObject[depth - 1] ? '}' : ']')) {
+                pos++;
+                depth--;
+                checkRootEnded();
+                return inObject[depth] ? Token.END_OBJECT : Token.END_ARRAY;
+            }
+            if (needsComma[depth - 1]) {
+                if (c != ',') {
+                    throw syntaxError("Expected ',' but was '" + (char) c + "'");
+                }
+                pos++;
+                c = nextNonWhitespace();
+            }
+            if (inObject[depth - 1]) {
+                if (expectingName[depth - 1]) {
+                    if (c != '"') {
+                        throw syntaxError("Expected a name");
+                    }
+                    pos++;
+                    expectingName[depth - 1] = false;
+                    needsComma[depth - 1] = false;
+                    return Token.NAME;
+                }
+                if (c != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                pos++;
+                c = nextNonWhitespace();
+                expectingName[depth - 1] = true;
+            }
+            needsComma[depth - 1] = true;
+        } else if (c == -1) {
+            return Token.END_DOCUMENT;
+        }
+
+        switch (c) {
+            case '{':
+                pos++;
+                push(true);
+                return Token.BEGIN_OBJECT;
+            case '[':
+                pos++;
+                push(false);
+                return Token.BEGIN_ARRAY;
+            case '"':
+                pos++;
+                return Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            case -1:
+                throw syntaxError("Unexpected end of document");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void push(boolean object) {
+        if (depth == inObject.length) {
+            inObject = Arrays.copyOf(inObject, depth * 2);
+            expectingName = Arrays.copyOf(expectingName, depth * 2);
+            needsComma = Arrays.copyOf(needsComma, depth * 2);
+        }
+        inObject[depth] = object;
+        expectingName[depth] = object;
+        needsComma[depth] = false;
+        depth++;
+    }
+
+    // Reads the rest of a string whose opening quote was consumed by readToken().
+    private String readString() throws IOException {
+        scratch.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    scratch.append(buffer, start, pos - 1 - start);
+                    return scratch.toString();
+                }
+                if (c == '\\') {
+                    scratch.append(buffer, start, pos - 1 - start);
+                    scratch.append(readEscape());
+                    start = pos;
+                }
+            }
+            scratch.append(buffer, start, pos - start);
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    return;
+                }
+                if (c == '\\') {
+                    readEscape();
+                }
+            }
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = value * 16 + digit;
+                }
+                return (char) value;
+            case -1:
+                throw syntaxError("Unterminated escape");
+            default:
+                return (char) c; // \" \\ \/
+        }
+    }
+
+    // Once the root value is complete, only whitespace may follow it.
+    private void checkRootEnded() throws IOException {
+        if (depth == 0) {
+            int c = nextNonWhitespace();
+            if (c != -1) {
+                throw syntaxError("Unexpected '" + (char) c + "' after the document");
+            }
+        }
+    }
+
+    // Reads a number, true, false or null and checks that it is a whole one.
+    private String readLiteral(Token token) throws IOException {
+        String value = readLiteral();
+        boolean valid;
+        switch (token) {
+            case BOOLEAN:
+                valid = value.equals("true") || value.equals("false");
+                break;
+            case NULL:
+                valid = value.equals("null");
+                break;
+            default:
+                valid = isNumber(value);
+        }
+        if (!valid) {
+            throw syntaxError("Invalid literal '" + value + "'");
+        }
+        return value;
+    }
+
+    // JSON's number grammar: -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?
+    private static boolean isNumber(String value) {
+        int i = 0;
+        int n = value.length();
+        if (i < n && value.charAt(i) == '-') {
+            i++;
+        }
+        if (i < n && value.charAt(i) == '0') {
+            i++;
+        } else {
+            int start = i;
+            i = skipDigits(value, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < n && value.charAt(i) == '.') {
+            int start = ++i;
+            i = skipDigits(value, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < n && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < n && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+                i++;
+            }
+            int start = i;
+            i = skipDigits(value, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == n;
+    }
+
+    private static int skipDigits(String value, int i) {
+        while (i < value.length() && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    // Numbers, true, false and null: everything up to the next delimiter.
+    private String readLiteral() throws IOException {
+        scratch.setLength(0);
+        while (true) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            char c = buffer[pos];
+            if (c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) {
+                break;
+            }
+            scratch.append(c);
+            pos++;
+        }
+        return scratch.toString();
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            pos++;
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = 0;
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        limit = n;
+        for (int i = 0; i < n; i++) {
+            if (buffer[i] == '\n') {
+                lines++;
+            }
+        }
+        return true;
+    }
+
+    // Lines read so far, counting a last line without a line break.
+    long getLineCount() {
+        return offset + limit > 0 && (limit == 0 || buffer[limit - 1] != '\n') ? lines + 1 : lines;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at character " + (offset + pos));
+    }
+}
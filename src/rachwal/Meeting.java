@@ -1,5 +1,6 @@
 package rachwal;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
 
@@ -9,6 +10,8 @@ public class Meeting {
     private LocalTime endTime;
     private List<Integer> days;
     private String room;
+    private LocalDate startDate; // first and last day the meeting runs; null for no limit
+    private LocalDate endDate;
 
     // Getters and setters
 
@@ -51,4 +54,20 @@ public class Meeting {
     public void setRoom(String room) {
         this.room = room;
     }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
 }
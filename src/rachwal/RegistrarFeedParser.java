@@ -0,0 +1,307 @@
+package rachwal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Checksum;
+
+/**
+ * Reads the registrar's AvailableSectionResults JSON feed (see README.md) straight into
+ * Course/Section/Meeting/Faculty objects. The document is streamed and every field the
+ * scheduler does not use is skipped unread, so memory does not grow with the size of the
+ * dump, only with the number of sections kept.
+ *
+ * Meeting times are the campus wall-clock times the feed gives in RawStartTime. A meeting
+ * without one has its UTC StartTime converted to the campus time zone, which is set with
+ * -Drachwal.campusZone (America/Toronto by default), never the zone of the host parsing it.
+ */
+public class RegistrarFeedParser {
+    static final ZoneId DEFAULT_CAMPUS_ZONE = ZoneId.of(System.getProperty("rachwal.campusZone", "America/Toronto"));
+
+    private final ZoneId campusZone;
+
+    public RegistrarFeedParser() {
+        this(DEFAULT_CAMPUS_ZONE);
+    }
+
+    public RegistrarFeedParser(ZoneId campusZone) {
+        this.campusZone = campusZone;
+    }
+
+    public List<Course> parseCoursesFromFile(String filePath) throws IOException {
+        return parseCoursesFromFile(filePath, null);
+    }
+
+    // As above, feeding the bytes read into the checksum if one is given.
+    List<Course> parseCoursesFromFile(String filePath, Checksum checksum) throws IOException {
+        ScheduleParseEvent event = new ScheduleParseEvent();
+        event.begin();
+        long start = System.nanoTime();
+        List<Course> courses;
+        long lines;
+        try (BufferedReader reader = CatalogueLoader.newReader(filePath, checksum);
+             JsonStreamReader json = new JsonStreamReader(reader)) {
+            courses = parseCourses(json);
+            lines = json.getLineCount();
+        }
+        SchedulerMetrics.parsed(event, filePath, Files.size(Paths.get(filePath)), lines, courses.size(), System.nanoTime() - start);
+        return courses;
+    }
+
+    List<Course> parseCourses(JsonStreamReader json) throws IOException {
+        List<Course> courses = new ArrayList<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            if (json.nextName().equals("AvailableSectionResults")) {
+                json.beginArray();
+                while (json.hasNext()) {
+                    courses.add(parseCourse(json));
+                }
+                json.endArray();
+            } else {
+                json.skipValue(); // filter facets: DaysOfWeek, Locations, Faculty, ...
+            }
+        }
+        json.endObject();
+        return courses;
+    }
+
+    private Course parseCourse(JsonStreamReader json) throws IOException {
+        Course course = new Course();
+        String numericId = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "CourseId":
+                    numericId = json.nextString();
+                    break;
+                case "AvailableSections":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        course.addSection(parseSection(json, course));
+                    }
+                    json.endArray();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        // Sections carry the readable name (e.g. ENGG*2100); the result only has the registrar's numeric id
+        if (course.getCourseId() == null) {
+            course.setCourseId(numericId);
+        }
+        return course;
+    }
+
+    private Section parseSection(JsonStreamReader json, Course course) throws IOException {
+        Section section = new Section();
+        section.setCourse(course);
+        Map<String, String> facultyNames = new HashMap<>();
+        List<String> facultyIds = new ArrayList<>();
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "CourseName":
+                    String courseName = json.nextString();
+                    if (course.getCourseId() == null) {
+                        course.setCourseId(courseName);
+                    }
+                    break;
+                case "Number":
+                    section.setSectionNumber(parseSectionNumber(json.nextString()));
+                    break;
+                case "Title":
+                    section.setTitle(json.nextString());
+                    break;
+                case "LocationDisplay":
+                    section.setLocation(json.nextString());
+                    break;
+                case "Capacity":
+                    section.setCapacity(json.nextInt());
+                    break;
+                case "Enrolled":
+                    section.setEnrolled(json.nextInt());
+                    break;
+                case "Available":
+                    section.setAvailable(json.nextInt());
+                    break;
+                case "StartDate":
+                    section.setStartDate(parseDate(json.nextString()));
+                    break;
+                case "EndDate":
+                    section.setEndDate(parseDate(json.nextString()));
+                    break;
+                case "Meetings":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        Meeting meeting = parseMeeting(json);
+                        if (meeting != null) {
+                            section.addMeeting(meeting);
+                        }
+                    }
+                    json.endArray();
+                    break;
+                case "FacultyIds":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        facultyIds.add(json.nextString());
+                    }
+                    json.endArray();
+                    break;
+                case "InstructorDetails":
+                    parseInstructorNames(json, facultyNames);
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        section.inheritDates();
+
+        for (String facultyId : facultyIds) {
+            Faculty faculty = new Faculty();
+            faculty.setFacultyId(facultyId);
+            faculty.setFacultyName(facultyNames.get(facultyId));
+            section.addFaculty(faculty);
+        }
+        return section;
+    }
+
+    // Returns null for meetings without a scheduled time (online or by arrangement).
+    private Meeting parseMeeting(JsonStreamReader json) throws IOException {
+        Meeting meeting = new Meeting();
+        OffsetDateTime startTime = null;
+        OffsetDateTime endTime = null;
+        OffsetDateTime rawStartTime = null;
+        List<Integer> days = new ArrayList<>();
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "InstructionalMethodCode":
+                    meeting.setType(json.nextString());
+                    break;
+                case "StartTime":
+                    startTime = parseDateTime(json.nextString());
+                    break;
+                case "EndTime":
+                    endTime = parseDateTime(json.nextString());
+                    break;
+                case "RawStartTime":
+                    rawStartTime = parseDateTime(json.nextString());
+                    break;
+                case "Days":
+                    if (json.peek() == JsonStreamReader.Token.NULL) {
+                        json.skipValue();
+                        break;
+                    }
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        days.add(json.nextInt());
+                    }
+                    json.endArray();
+                    break;
+                case "Room":
+                    meeting.setRoom(json.nextString());
+                    break;
+                case "StartDate":
+                    meeting.setStartDate(parseDate(json.nextString()));
+                    break;
+                case "EndDate":
+                    meeting.setEndDate(parseDate(json.nextString()));
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (startTime == null || endTime == null) {
+            return null;
+        }
+        // StartTime/EndTime are UTC instants on an arbitrary date; RawStartTime carries the
+        // campus wall-clock start. The end keeps the same duration from that start.
+        LocalTime localStart = rawStartTime != null
+                ? rawStartTime.toLocalTime()
+                : startTime.atZoneSameInstant(campusZone).toLocalTime();
+        meeting.setStartTime(localStart);
+        meeting.setEndTime(localStart.plus(Duration.between(startTime, endTime)));
+        meeting.setDays(days);
+        return meeting;
+    }
+
+    private void parseInstructorNames(JsonStreamReader json, Map<String, String> facultyNames) throws IOException {
+        if (json.peek() == JsonStreamReader.Token.NULL) {
+            json.skipValue();
+            return;
+        }
+        json.beginArray();
+        while (json.hasNext()) {
+            String facultyId = null;
+            String facultyName = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "FacultyId":
+                        facultyId = json.nextString();
+                        break;
+                    case "FacultyName":
+                        facultyName = json.nextString();
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            if (facultyId != null) {
+                facultyNames.put(facultyId, facultyName);
+            }
+        }
+        json.endArray();
+    }
+
+    // Section numbers such as "01011"; any non-digit characters are ignored.
+    private int parseSectionNumber(String number) {
+        if (number == null) {
+            return 0;
+        }
+        int value = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            }
+        }
+        return value;
+    }
+
+    private OffsetDateTime parseDateTime(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            System.err.println("Failed to parse date-time: '" + value + "'");
+            return null;
+        }
+    }
+
+    private LocalDate parseDate(String value) {
+        OffsetDateTime dateTime = parseDateTime(value);
+        return dateTime == null ? null : dateTime.toLocalDate();
+    }
+}
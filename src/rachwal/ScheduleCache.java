@@ -0,0 +1,208 @@
+package rachwal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers the schedules found for a course set, so students asking for the same bundle
+ * share one search. Entries are keyed by the sorted course IDs, the constraints and the
+ * catalogue version. Requests that list the same courses in another order hit the same
+ * entry, and schedules always come back with courses sorted by ID. The cache is bounded by
+ * the total number of schedules held and evicts the least recently used entries first.
+ *
+ * Callers that only need the first few schedules can ask for a limit. An entry stored for a
+ * larger limit, or one that holds every schedule, answers smaller requests too.
+ *
+ * Safe for concurrent use. Two threads missing on the same key at once may both search;
+ * the second result simply replaces the first.
+ */
+public class ScheduleCache {
+    private final long maxSchedules;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final CompatibilityIndex index;
+    private final long version;
+    private long cachedSchedules;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations; // a search that overlapped an invalidation is not stored
+
+    public ScheduleCache(CompatibilityIndex index, long version, long maxSchedules) {
+        this.index = index;
+        this.version = version;
+        this.maxSchedules = maxSchedules;
+    }
+
+    // The schedules are shared between callers and cannot be modified.
+    public List<List<Section>> getCombinations(Collection<Course> courses, ScheduleConstraints constraints) {
+        return getCombinations(courses, constraints, Long.MAX_VALUE);
+    }
+
+    // The first schedules, up to the limit, in the order of the full list.
+    public List<List<Section>> getCombinations(Collection<Course> courses, ScheduleConstraints constraints, long limit) {
+        List<Course> sorted = new ArrayList<>(courses);
+        sorted.sort(Comparator.comparing(Course::getCourseId));
+        List<String> courseIds = new ArrayList<>(sorted.size());
+        for (Course course : sorted) {
+            courseIds.add(course.getCourseId());
+        }
+
+        Key key = new Key(courseIds, constraints, version);
+        long invalidationsBefore;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && (entry.complete || entry.schedules.size() >= limit)) {
+                hits++;
+                return entry.schedules.size() > limit ? entry.schedules.subList(0, (int) limit) : entry.schedules;
+            }
+            misses++;
+            invalidationsBefore = invalidations;
+        }
+
+        BitSet allowed = new BitSet(index.getSectionCount());
+        for (Course course : sorted) {
+            for (int id = index.firstSectionOf(course); id < index.endSectionOf(course); id++) {
+                if (key.constraints.accepts(index.getSection(id))) {
+                    allowed.set(id);
+                }
+            }
+        }
+        ScheduleCombinations scheduleCombinations = new ScheduleCombinations(sorted, index);
+        scheduleCombinations.setConstraints(key.constraints);
+        List<List<Section>> found = limit == Long.MAX_VALUE
+                ? scheduleCombinations.generateCombinations()
+                : scheduleCombinations.stream().limit(limit).collect(Collectors.toList());
+        List<List<Section>> schedules = Collections.unmodifiableList(found);
+        boolean complete = schedules.size() < limit;
+
+        synchronized (this) {
+            if (invalidations == invalidationsBefore && schedules.size() <= maxSchedules) {
+                Entry previous = entries.put(key, new Entry(key.constraints, sorted, schedules, complete, allowed));
+                if (previous != null) {
+                    cachedSchedules -= previous.schedules.size();
+                }
+                cachedSchedules += schedules.size();
+                evict();
+            }
+        }
+        return schedules;
+    }
+
+    /**
+     * Drops the entries whose results depend on these sections' seat counts: those with an
+     * open-seats constraint on a course where one of the sections has filled up or opened
+     * since the entry was stored. Count changes that leave a section open or closed keep
+     * every entry. Returns the number of entries dropped.
+     */
+    public synchronized int invalidate(Collection<Section> changedSections) {
+        invalidations++;
+        int dropped = 0;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry.dependsOnSeats(changedSections)) {
+                cachedSchedules -= entry.schedules.size();
+                it.remove();
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedSchedules = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getCachedScheduleCount() {
+        return cachedSchedules;
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (cachedSchedules > maxSchedules && it.hasNext()) {
+            cachedSchedules -= it.next().schedules.size(); // Least recently used first
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static final class Key {
+        final List<String> courseIds;
+        final ScheduleConstraints constraints;
+        final long version;
+
+        Key(List<String> courseIds, ScheduleConstraints constraints, long version) {
+            this.courseIds = courseIds;
+            this.constraints = constraints == null ? ScheduleConstraints.NONE : constraints;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return version == other.version && courseIds.equals(other.courseIds) && constraints.equals(other.constraints);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(courseIds, constraints, version);
+        }
+    }
+
+    private final class Entry {
+        final ScheduleConstraints constraints;
+        final List<Course> courses;
+        final List<List<Section>> schedules;
+        final boolean complete; // false if the search stopped at a limit
+        final BitSet allowed;   // sections that passed the constraints when the entry was stored
+
+        Entry(ScheduleConstraints constraints, List<Course> courses, List<List<Section>> schedules, boolean complete, BitSet allowed) {
+            this.constraints = constraints;
+            this.courses = courses;
+            this.schedules = schedules;
+            this.complete = complete;
+            this.allowed = allowed;
+        }
+
+        boolean dependsOnSeats(Collection<Section> changedSections) {
+            if (!constraints.isAvailableSeatsOnly()) {
+                return false;
+            }
+            for (Section section : changedSections) {
+                int id = index.indexOf(section);
+                if (id >= 0 && courses.contains(section.getCourse()) && allowed.get(id) != constraints.accepts(section)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
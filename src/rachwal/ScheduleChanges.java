@@ -0,0 +1,29 @@
+package rachwal;
+
+import java.util.List;
+
+/**
+ * What a seat refresh did to a result set: the schedules dropped because one of their
+ * sections filled up, and those added back because a section opened again.
+ */
+public class ScheduleChanges {
+    private final List<List<Section>> removed;
+    private final List<List<Section>> restored;
+
+    public ScheduleChanges(List<List<Section>> removed, List<List<Section>> restored) {
+        this.removed = removed;
+        this.restored = restored;
+    }
+
+    public List<List<Section>> getRemoved() {
+        return removed;
+    }
+
+    public List<List<Section>> getRestored() {
+        return restored;
+    }
+
+    public boolean isEmpty() {
+        return removed.isEmpty() && restored.isEmpty();
+    }
+}
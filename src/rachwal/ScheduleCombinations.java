@@ -1,69 +1,1106 @@
 package rachwal;
 
-import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class ScheduleCombinations implements Iterable<List<Section>> {
+    // Aim for this many subtrees per worker so uneven branches still balance out
+    private static final int TASKS_PER_THREAD = 8;
+    // Result lists kept for course sets and pins seen recently, so undoing an edit is a lookup
+    private static final int HISTORY_SIZE = 16;
+    // One pool per parallelism level, shared by every search; its workers are daemon threads
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
 
-public class ScheduleCombinations {
     private List<Course> courses;
+    private CompatibilityIndex index;
+    private int parallelism = 1;
+    private ScheduleConstraints constraints = ScheduleConstraints.NONE;
+    private final Map<Course, Section> pinned = new HashMap<>();
+
+    // Schedules for the current courses, pins and constraints; null until first searched
+    private List<List<Section>> results;
+    private BitSet resultsRoot; // allowedSections() when results were found, to spot seat changes
+    @SuppressWarnings("serial")
+    private final Map<List<Object>, List<List<Section>>> history = new LinkedHashMap<>(HISTORY_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, List<List<Section>>> eldest) {
+            return size() > HISTORY_SIZE;
+        }
+    };
+
+    // Search statistics from the last call to generateCombinations()
+    private long nodesVisited;
+    private long leavesVisited;
+    private long branchesPruned;
 
     public ScheduleCombinations(List<Course> courses) {
-        this.courses = courses;
+        this(courses, new CompatibilityIndex(courses));
+    }
+
+    // Reuses an index built for the whole catalogue; every course must be part of it.
+    public ScheduleCombinations(List<Course> courses, CompatibilityIndex index) {
+        for (Course course : courses) {
+            if (!index.contains(course)) {
+                throw new IllegalArgumentException("Course " + course.getCourseId() + " is not in the compatibility index");
+            }
+        }
+        this.courses = new ArrayList<>(courses); // addCourse and removeCourse edit this copy
+        this.index = index;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // Number of worker threads used by generateCombinations(); 1 searches on the calling thread.
+    // Searches with the same parallelism share one pool, so no threads are started per search.
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public ScheduleConstraints getConstraints() {
+        return constraints;
+    }
+
+    // Sections that fail the constraints are dropped before the search starts.
+    public void setConstraints(ScheduleConstraints constraints) {
+        this.constraints = constraints == null ? ScheduleConstraints.NONE : constraints;
+        results = null;
     }
 
+    public List<Course> getCourses() {
+        return Collections.unmodifiableList(courses);
+    }
+
+    public Map<Course, Section> getPinnedSections() {
+        return Collections.unmodifiableMap(pinned);
+    }
+
+    /**
+     * Valid schedules in course order, enumerated depth-first over each course's sections.
+     * The search branches once per time class (see {@link CompatibilityIndex#timeClassOf}),
+     * and the classes found are then expanded into every section they stand for, in the
+     * order a search over all the sections would find them. The parallel search returns
+     * exactly the same list as the sequential one.
+     */
     public List<List<Section>> generateCombinations() {
+        keep(searchByTimeClass(allowedSections()));
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Schedules with one section of every course plus, from each group, between its minimum
+     * and maximum number of courses. The courses are searched first and every group's choices
+     * branch off the same partial schedules. So "3 core courses and any 2 of 6 electives"
+     * costs one search rather than one per pair of electives. A group that can no longer
+     * reach its minimum with the courses it has left is cut off at once.
+     *
+     * Each schedule lists the course sections in course order, then the chosen electives in
+     * group order. Schedules that take a course come before those that skip it.
+     */
+    public List<List<Section>> generateCombinations(List<CourseGroup> groups) {
+        // The required courses, then each group's courses; groupOf is -1 for a required course
+        List<Course> order = new ArrayList<>(courses);
+        int[] groupEnd = new int[groups.size()];
+        for (int g = 0; g < groups.size(); g++) {
+            for (Course course : groups.get(g).getCourses()) {
+                if (!index.contains(course)) {
+                    throw new IllegalArgumentException("Course " + course.getCourseId() + " is not in the compatibility index");
+                }
+                if (order.contains(course)) {
+                    throw new IllegalArgumentException("Course " + course.getCourseId() + " is listed more than once");
+                }
+                order.add(course);
+            }
+            groupEnd[g] = order.size();
+        }
+        int[] groupOf = new int[order.size()];
+        Arrays.fill(groupOf, -1);
+        for (int g = 0; g < groups.size(); g++) {
+            Arrays.fill(groupOf, groupEnd[g] - groups.get(g).getCourses().size(), groupEnd[g], g);
+        }
+
+        ScheduleSearchEvent event = new ScheduleSearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        // levels[d + 1] is the buffer for the candidates after choosing a section at depth d
+        BitSet[] levels = new BitSet[order.size() + 1];
+        for (int i = 1; i < levels.length; i++) {
+            levels[i] = new BitSet(index.getSectionCount());
+        }
+        BitSet root = allowedSections();
+        for (int i = courses.size(); i < order.size(); i++) {
+            for (int id = index.firstSectionOf(order.get(i)); id < index.endSectionOf(order.get(i)); id++) {
+                if (constraints.accepts(index.getSection(id))) {
+                    root.set(id);
+                }
+            }
+        }
+        nodesVisited = 0;
+        leavesVisited = 0;
+        branchesPruned = 0;
         List<List<Section>> validCombinations = new ArrayList<>();
-        generateCombinationsHelper(courses, 0, new ArrayList<>(), validCombinations);
+        groupedHelper(0, root, order, groupOf, groupEnd, groups, new int[groups.size()], levels, new ArrayList<>(), validCombinations);
+        SchedulerMetrics.searched(event, "grouped", order.size(), nodesVisited, branchesPruned, leavesVisited,
+                validCombinations.size(), System.nanoTime() - start);
         return validCombinations;
     }
 
-    private void generateCombinationsHelper(List<Course> courses, int courseIndex, List<Section> currentCombination, List<List<Section>> validCombinations) {
-        if (courseIndex == courses.size()) {
-            if (isValidCombination(currentCombination)) {
-                validCombinations.add(new ArrayList<>(currentCombination));
+    /**
+     * Adds a course after the existing ones and extends the current schedules with every
+     * section of it that fits, rather than searching again. The result is what
+     * generateCombinations() would return for the longer course list, in the same order.
+     */
+    public List<List<Section>> addCourse(Course course) {
+        if (!index.contains(course)) {
+            throw new IllegalArgumentException("Course " + course.getCourseId() + " is not in the compatibility index");
+        }
+        if (courses.contains(course)) {
+            throw new IllegalArgumentException("Course " + course.getCourseId() + " is already scheduled");
+        }
+        List<List<Section>> base = currentResults();
+        courses.add(course);
+        BitSet allowed = allowedSections();
+        int from = index.firstSectionOf(course);
+        int to = index.endSectionOf(course);
+
+        List<List<Section>> extended = new ArrayList<>();
+        BitSet fits = new BitSet(index.getSectionCount());
+        for (List<Section> schedule : base) {
+            fits.clear();
+            fits.or(allowed);
+            for (Section section : schedule) {
+                fits.and(index.compatibleWith(section));
+            }
+            for (int id = fits.nextSetBit(from); id >= 0 && id < to; id = fits.nextSetBit(id + 1)) {
+                List<Section> longer = new ArrayList<>(schedule.size() + 1);
+                longer.addAll(schedule);
+                longer.add(index.getSection(id));
+                extended.add(longer);
+            }
+        }
+        keep(extended);
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Drops a course, along with any pin on it. Projecting the current schedules is not
+     * enough: schedules of the other courses that no section of the dropped course fitted
+     * were never generated. So the result comes from the history when this course list was
+     * searched before (undoing an addCourse, for instance), and from a new search otherwise.
+     */
+    public List<List<Section>> removeCourse(Course course) {
+        if (!courses.remove(course)) {
+            throw new IllegalArgumentException("Course " + course.getCourseId() + " is not scheduled");
+        }
+        pinned.remove(course);
+        return recalledOrSearched();
+    }
+
+    // The schedules kept for the current courses, pins and constraints; searches only if there are none.
+    public List<List<Section>> getCombinations() {
+        return new ArrayList<>(currentResults());
+    }
+
+    // Keeps only the schedules that take this section for its course.
+    public List<List<Section>> pinSection(Section section) {
+        Course course = section.getCourse();
+        int position = courses.indexOf(course);
+        if (position < 0 || index.indexOf(section) < 0) {
+            throw new IllegalArgumentException("Section " + section.getSectionNumber() + " is not part of a scheduled course");
+        }
+        Section previous = pinned.put(course, section);
+        if (previous != null && previous != section) {
+            // Schedules with the new section were filtered out by the old pin
+            return recalledOrSearched();
+        }
+        List<List<Section>> filtered = new ArrayList<>();
+        for (List<Section> schedule : currentResults()) {
+            if (schedule.get(position) == section) {
+                filtered.add(schedule);
             }
+        }
+        keep(filtered);
+        return new ArrayList<>(results);
+    }
+
+    public List<List<Section>> unpinCourse(Course course) {
+        if (pinned.remove(course) == null) {
+            return new ArrayList<>(currentResults());
+        }
+        return recalledOrSearched();
+    }
+
+    private List<List<Section>> currentResults() {
+        if (results == null) {
+            keep(searchByTimeClass(allowedSections()));
+        }
+        return results;
+    }
+
+    private List<List<Section>> recalledOrSearched() {
+        List<List<Section>> recalled = history.get(stateKey());
+        if (recalled != null) {
+            keep(recalled);
+        } else {
+            results = null;
+        }
+        return new ArrayList<>(currentResults());
+    }
+
+    private void keep(List<List<Section>> schedules) {
+        results = schedules;
+        resultsRoot = allowedSections();
+        history.put(stateKey(), schedules);
+    }
+
+    /**
+     * Brings the kept schedules up to date after seat counts changed in place (see
+     * {@link SeatUpdater}). Only matters with an open-seats constraint. Schedules using a
+     * section that filled up are dropped without searching. For each section that opened
+     * again, only the schedules that contain it are searched for. Each restored schedule is
+     * attributed to the first reopened section it contains, so none is found twice. They are
+     * merged back in generateCombinations() order. Older results in the history are
+     * discarded, since they were found with the old counts.
+     */
+    public ScheduleChanges refreshSeats() {
+        history.clear();
+        List<List<Section>> removed = new ArrayList<>();
+        List<List<Section>> restored = new ArrayList<>();
+        if (results == null) {
+            return new ScheduleChanges(removed, restored);
+        }
+        BitSet root = allowedSections();
+        BitSet closed = (BitSet) resultsRoot.clone();
+        closed.andNot(root);
+        BitSet opened = (BitSet) root.clone();
+        opened.andNot(resultsRoot);
+
+        List<List<Section>> kept = results;
+        if (!closed.isEmpty()) {
+            kept = new ArrayList<>(results.size());
+            for (List<Section> schedule : results) {
+                if (usesAny(schedule, closed)) {
+                    removed.add(schedule);
+                } else {
+                    kept.add(schedule);
+                }
+            }
+        }
+
+        BitSet attributed = new BitSet(index.getSectionCount());
+        for (int id = opened.nextSetBit(0); id >= 0; id = opened.nextSetBit(id + 1)) {
+            Course course = index.getSection(id).getCourse();
+            BitSet containing = (BitSet) root.clone();
+            containing.clear(index.firstSectionOf(course), index.endSectionOf(course));
+            containing.set(id);
+            containing.andNot(attributed);
+            restored.addAll(search(containing));
+            attributed.set(id);
+        }
+        Comparator<List<Section>> searchOrder = this::compareBySectionIds;
+        restored.sort(searchOrder);
+
+        keep(restored.isEmpty() ? kept : merge(kept, restored, searchOrder));
+        return new ScheduleChanges(removed, restored);
+    }
+
+    private boolean usesAny(List<Section> schedule, BitSet sectionIds) {
+        for (Section section : schedule) {
+            if (sectionIds.get(index.indexOf(section))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Depth-first order: section ids compared course by course.
+    private int compareBySectionIds(List<Section> schedule1, List<Section> schedule2) {
+        for (int i = 0; i < schedule1.size(); i++) {
+            int c = Integer.compare(index.indexOf(schedule1.get(i)), index.indexOf(schedule2.get(i)));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private static List<List<Section>> merge(List<List<Section>> a, List<List<Section>> b, Comparator<List<Section>> order) {
+        List<List<Section>> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            merged.add(order.compare(a.get(i), b.get(j)) <= 0 ? a.get(i++) : b.get(j++));
+        }
+        merged.addAll(a.subList(i, a.size()));
+        merged.addAll(b.subList(j, b.size()));
+        return merged;
+    }
+
+    // Course IDs in order, pinned section numbers by course ID, and the constraints.
+    private List<Object> stateKey() {
+        List<String> courseIds = new ArrayList<>(courses.size());
+        for (Course course : courses) {
+            courseIds.add(course.getCourseId());
+        }
+        Map<String, Integer> pins = new TreeMap<>();
+        for (Map.Entry<Course, Section> pin : pinned.entrySet()) {
+            pins.put(pin.getKey().getCourseId(), pin.getValue().getSectionNumber());
+        }
+        return Arrays.asList(courseIds, pins, constraints);
+    }
+
+    /**
+     * Searches once per group of time-identical sections instead of once per section. Each
+     * result stands for every schedule that swaps sections within their groups; expanded,
+     * the classes hold exactly the schedules of generateCombinations(), grouped by time
+     * pattern rather than in its order.
+     */
+    public List<CombinationClass> generateCombinationClasses() {
+        BitSet allowed = allowedSections();
+        int[][] representativeOf = representatives(allowed);
+        Map<Integer, List<Section>> groups = new HashMap<>();
+        for (int c = 0; c < courses.size(); c++) {
+            int from = index.firstSectionOf(courses.get(c));
+            for (int id = allowed.nextSetBit(from); id >= 0 && id < index.endSectionOf(courses.get(c)); id = allowed.nextSetBit(id + 1)) {
+                groups.computeIfAbsent(representativeOf[c][id - from], key -> new ArrayList<>()).add(index.getSection(id));
+            }
+        }
+
+        List<CombinationClass> classes = new ArrayList<>();
+        for (List<Section> schedule : search(representativeSections(allowed, representativeOf))) {
+            List<List<Section>> alternatives = new ArrayList<>(schedule.size());
+            for (Section representative : schedule) {
+                alternatives.add(groups.get(index.indexOf(representative)));
+            }
+            classes.add(new CombinationClass(alternatives));
+        }
+        return classes;
+    }
+
+    // Number of valid schedules, counted over time-identical groups without listing them.
+    public long countCombinations() {
+        long count = 0;
+        for (CombinationClass combinationClass : generateCombinationClasses()) {
+            count += combinationClass.size();
+        }
+        return count;
+    }
+
+    private List<List<Section>> search(BitSet root) {
+        ScheduleSearchEvent event = new ScheduleSearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        List<List<Section>> found = runSearch(root);
+        SchedulerMetrics.searched(event, "generate", courses.size(), nodesVisited, branchesPruned, leavesVisited,
+                found.size(), System.nanoTime() - start);
+        return found;
+    }
+
+    // Searches the representatives of the allowed sections, then expands what it finds.
+    private List<List<Section>> searchByTimeClass(BitSet allowed) {
+        ScheduleSearchEvent event = new ScheduleSearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int[][] representativeOf = representatives(allowed);
+        List<List<Section>> classes = runSearch(representativeSections(allowed, representativeOf));
+        List<List<Section>> found = expand(classes, allowed, representativeOf);
+        SchedulerMetrics.searched(event, "generate", courses.size(), nodesVisited, branchesPruned, leavesVisited,
+                found.size(), System.nanoTime() - start);
+        return found;
+    }
+
+    private List<List<Section>> runSearch(BitSet root) {
+        CombinationTask task;
+        if (parallelism <= 1) {
+            task = new CombinationTask(0, root, new ArrayList<>(), 0);
+            task.compute();
+        } else {
+            task = new CombinationTask(0, root, new ArrayList<>(), splitDepth());
+            POOLS.computeIfAbsent(parallelism, ForkJoinPool::new).invoke(task);
+        }
+        nodesVisited = task.nodesVisited;
+        leavesVisited = task.leavesVisited;
+        branchesPruned = task.branchesPruned;
+        return task.getRawResult();
+    }
+
+    /**
+     * For each course, the section that stands in for each allowed one: the first allowed
+     * section of its time class. Indexed by course position, then by section id less the
+     * course's first id; -1 for sections that are not allowed.
+     */
+    private int[][] representatives(BitSet allowed) {
+        int[][] representativeOf = new int[courses.size()][];
+        for (int c = 0; c < courses.size(); c++) {
+            int from = index.firstSectionOf(courses.get(c));
+            int to = index.endSectionOf(courses.get(c));
+            int[] course = new int[to - from];
+            Arrays.fill(course, -1);
+            int[] first = new int[to - from]; // first allowed section of each time class
+            Arrays.fill(first, -1);
+            for (int id = allowed.nextSetBit(from); id >= 0 && id < to; id = allowed.nextSetBit(id + 1)) {
+                int timeClass = index.timeClassOf(id) - from;
+                if (first[timeClass] < 0) {
+                    first[timeClass] = id;
+                }
+                course[id - from] = first[timeClass];
+            }
+            representativeOf[c] = course;
+        }
+        return representativeOf;
+    }
+
+    private BitSet representativeSections(BitSet allowed, int[][] representativeOf) {
+        BitSet representatives = new BitSet(index.getSectionCount());
+        for (int c = 0; c < courses.size(); c++) {
+            int from = index.firstSectionOf(courses.get(c));
+            for (int id = allowed.nextSetBit(from); id >= 0 && id < index.endSectionOf(courses.get(c)); id = allowed.nextSetBit(id + 1)) {
+                if (representativeOf[c][id - from] == id) {
+                    representatives.set(id);
+                }
+            }
+        }
+        return representatives;
+    }
+
+    /**
+     * Lists every schedule the class schedules stand for. The search finds classes sorted by
+     * section id course by course, so for each course the allowed sections are walked in id
+     * order, each descending into the run of classes that holds its representative there.
+     * That is the order a search over every section finds the schedules in.
+     */
+    private List<List<Section>> expand(List<List<Section>> classSchedules, BitSet allowed, int[][] representativeOf) {
+        int[][] classes = new int[classSchedules.size()][];
+        for (int i = 0; i < classes.length; i++) {
+            List<Section> schedule = classSchedules.get(i);
+            classes[i] = new int[schedule.size()];
+            for (int d = 0; d < classes[i].length; d++) {
+                classes[i][d] = index.indexOf(schedule.get(d));
+            }
+        }
+        List<List<Section>> expanded = new ArrayList<>();
+        expandHelper(0, classes, 0, classes.length, allowed, representativeOf, new Section[courses.size()], expanded);
+        return expanded;
+    }
+
+    private void expandHelper(int depth, int[][] classes, int low, int high, BitSet allowed, int[][] representativeOf,
+                              Section[] chosen, List<List<Section>> expanded) {
+        if (low == high) {
+            return;
+        }
+        if (depth == courses.size()) {
+            expanded.add(new ArrayList<>(Arrays.asList(chosen)));
             return;
         }
+        int from = index.firstSectionOf(courses.get(depth));
+        int to = index.endSectionOf(courses.get(depth));
+        for (int id = allowed.nextSetBit(from); id >= 0 && id < to; id = allowed.nextSetBit(id + 1)) {
+            int representative = representativeOf[depth][id - from];
+            int first = firstAtLeast(classes, low, high, depth, representative);
+            int end = firstAtLeast(classes, first, high, depth, representative + 1);
+            if (first < end) {
+                chosen[depth] = index.getSection(id);
+                expandHelper(depth + 1, classes, first, end, allowed, representativeOf, chosen, expanded);
+            }
+        }
+    }
 
-        Course currentCourse = courses.get(courseIndex);
-        for (Section section : currentCourse.getSections()) {
-            currentCombination.add(section);
-            generateCombinationsHelper(courses, courseIndex + 1, currentCombination, validCombinations);
-            currentCombination.remove(currentCombination.size() - 1);
+    // First of classes[low, high), sorted by their section at depth, whose section there is at least id.
+    private static int firstAtLeast(int[][] classes, int low, int high, int depth, int id) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (classes[mid][depth] < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Lazily enumerates the same schedules, in the same order, as generateCombinations().
+     * Only the current path is kept in memory, so callers can stop after the first few
+     * results without the rest ever being searched. Interrupting the thread walking it
+     * stops the walk with a CancellationException.
+     */
+    @Override
+    public Iterator<List<Section>> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    // Splits on the sections of the first course, so it can feed a parallel stream.
+    @Override
+    public Spliterator<List<Section>> spliterator() {
+        if (courses.isEmpty()) {
+            return new CombinationSpliterator(0, 0);
         }
+        Course first = courses.get(0);
+        return new CombinationSpliterator(index.firstSectionOf(first), index.endSectionOf(first));
+    }
+
+    // e.g. stream().limit(500) to take the first 500 schedules, or stream().parallel()
+    public Stream<List<Section>> stream() {
+        return StreamSupport.stream(spliterator(), false);
     }
 
-    private boolean isValidCombination(List<Section> combination) {
-        for (int i = 0; i < combination.size(); i++) {
-            Section section1 = combination.get(i);
-            for (Meeting meeting1 : section1.getMeetings()) {
-                for (int j = i + 1; j < combination.size(); j++) {
-                    Section section2 = combination.get(j);
-                    for (Meeting meeting2 : section2.getMeetings()) {
-                        if (meetingsOverlap(meeting1, meeting2)) {
-                            return false;
+    /**
+     * The k best schedules by the scorer, best first; ties keep generateCombinations() order.
+     * Subtrees whose lower bound cannot beat the current k-th best are never searched.
+     */
+    public List<List<Section>> topCombinations(ScheduleScorer scorer, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1: " + k);
+        }
+        // Worst of the current best k on top, so it is the one to evict
+        Comparator<RankedSchedule> bestFirst = Comparator.<RankedSchedule>comparingDouble(r -> r.score).thenComparingLong(r -> r.order);
+        PriorityQueue<RankedSchedule> best = new PriorityQueue<>(k + 1, bestFirst.reversed());
+
+        BitSet[] levels = new BitSet[courses.size() + 1];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new BitSet(index.getSectionCount());
+        }
+        ScheduleSearchEvent event = new ScheduleSearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        levels[0] = allowedSections();
+        nodesVisited = 0;
+        leavesVisited = 0;
+        branchesPruned = 0;
+        topCombinationsHelper(scorer, k, 0, levels, new ArrayList<>(), best);
+        SchedulerMetrics.searched(event, "top", courses.size(), nodesVisited, branchesPruned, leavesVisited,
+                best.size(), System.nanoTime() - start);
+
+        List<RankedSchedule> ranked = new ArrayList<>(best);
+        ranked.sort(bestFirst);
+        List<List<Section>> result = new ArrayList<>();
+        for (RankedSchedule schedule : ranked) {
+            result.add(schedule.sections);
+        }
+        return result;
+    }
+
+    /**
+     * Checks every pair of courses for at least one compatible pair of sections, repeatedly
+     * dropping sections that clash with every remaining section of some other course.
+     * Returns the reduced candidate sections, or throws as soon as a course runs out of
+     * sections, naming the course it ran out against.
+     */
+    public BitSet checkFeasibility() throws InfeasibleScheduleException {
+        BitSet domains = allowedSections();
+        for (Course course : courses) {
+            if (countInRange(domains, course) == 0) {
+                throw new InfeasibleScheduleException("No feasible schedule: no section of " + course.getCourseId()
+                        + " satisfies " + constraints, Collections.singletonList(course));
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Course course : courses) {
+                for (Course other : courses) {
+                    if (other == course) {
+                        continue;
+                    }
+                    for (int id = domains.nextSetBit(index.firstSectionOf(course)); id >= 0 && id < index.endSectionOf(course); id = domains.nextSetBit(id + 1)) {
+                        if (!intersectsInRange(index.compatibleWith(id), domains, other)) {
+                            domains.clear(id); // Clashes with every remaining section of the other course
+                            changed = true;
                         }
                     }
+                    if (countInRange(domains, course) == 0) {
+                        throw new InfeasibleScheduleException("No feasible schedule: conflict between " + course.getCourseId()
+                                + " and " + other.getCourseId(), Arrays.asList(course, other));
+                    }
                 }
             }
         }
-        return true;
+        return domains;
     }
 
-    private boolean meetingsOverlap(Meeting meeting1, Meeting meeting2) {
-        for (int day1 : meeting1.getDays()) {
-            for (int day2 : meeting2.getDays()) {
-                if (day1 == day2) {
-                    if (timesOverlap(meeting1.getStartTime(), meeting1.getEndTime(), meeting2.getStartTime(), meeting2.getEndTime())) {
-                        return true;
-                    }
+    /**
+     * Constraint-propagation search. Checks feasibility first, then always branches on the
+     * course with the fewest sections still compatible with everything chosen so far, and
+     * backtracks as soon as any remaining course has none left. Returns the same schedules as
+     * generateCombinations(), each in course order, but in the order they are found.
+     */
+    public List<List<Section>> solveCombinations() throws InfeasibleScheduleException {
+        ScheduleSearchEvent event = new ScheduleSearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        BitSet domains = checkFeasibility();
+        nodesVisited = 0;
+        leavesVisited = 0;
+        branchesPruned = 0;
+        List<List<Section>> validCombinations = new ArrayList<>();
+        BitSet[] levels = new BitSet[courses.size() + 1];
+        for (int i = 1; i < levels.length; i++) {
+            levels[i] = new BitSet(index.getSectionCount());
+        }
+        levels[0] = domains;
+        solveHelper(0, levels, new boolean[courses.size()], new Section[courses.size()], validCombinations);
+        SchedulerMetrics.searched(event, "solve", courses.size(), nodesVisited, branchesPruned, leavesVisited,
+                validCombinations.size(), System.nanoTime() - start);
+        if (validCombinations.isEmpty()) {
+            throw new InfeasibleScheduleException("No feasible schedule: every pair of courses fits, but no combination of all "
+                    + courses.size() + " does", new ArrayList<>(courses));
+        }
+        return validCombinations;
+    }
+
+    private void solveHelper(int depth, BitSet[] candidates, boolean[] assigned, Section[] chosen, List<List<Section>> validCombinations) {
+        nodesVisited++;
+        if (depth == courses.size()) {
+            leavesVisited++;
+            validCombinations.add(new ArrayList<>(Arrays.asList(chosen)));
+            return;
+        }
+
+        // Fewest remaining values first; an empty domain means this branch is already dead
+        BitSet available = candidates[depth];
+        int next = -1;
+        int fewest = Integer.MAX_VALUE;
+        for (int c = 0; c < courses.size(); c++) {
+            if (!assigned[c]) {
+                int remaining = countInRange(available, courses.get(c));
+                if (remaining == 0) {
+                    branchesPruned++;
+                    return;
+                }
+                if (remaining < fewest) {
+                    fewest = remaining;
+                    next = c;
                 }
             }
         }
+
+        Course course = courses.get(next);
+        BitSet narrowed = candidates[depth + 1];
+        assigned[next] = true;
+        for (int id = available.nextSetBit(index.firstSectionOf(course)); id >= 0 && id < index.endSectionOf(course); id = available.nextSetBit(id + 1)) {
+            narrowed.clear();
+            narrowed.or(available);
+            narrowed.and(index.compatibleWith(id));
+            chosen[next] = index.getSection(id);
+            solveHelper(depth + 1, candidates, assigned, chosen, validCombinations);
+        }
+        chosen[next] = null;
+        assigned[next] = false;
+    }
+
+    private int countInRange(BitSet sections, Course course) {
+        int count = 0;
+        int to = index.endSectionOf(course);
+        for (int id = sections.nextSetBit(index.firstSectionOf(course)); id >= 0 && id < to; id = sections.nextSetBit(id + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private boolean intersectsInRange(BitSet compatible, BitSet sections, Course course) {
+        int to = index.endSectionOf(course);
+        for (int id = sections.nextSetBit(index.firstSectionOf(course)); id >= 0 && id < to; id = sections.nextSetBit(id + 1)) {
+            if (compatible.get(id)) {
+                return true;
+            }
+        }
         return false;
     }
 
-    private boolean timesOverlap(LocalTime start1, LocalTime end1, LocalTime start2, LocalTime end2) {
-        return start1.isBefore(end2) && start2.isBefore(end1);
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public long getLeavesVisited() {
+        return leavesVisited;
+    }
+
+    public long getBranchesPruned() {
+        return branchesPruned;
+    }
+
+    // The backtracking search of generateCombinations(), with a "skip" branch after the
+    // sections of each group course. Skipping leaves the candidates unchanged, so the same
+    // set is passed down; a group that is full is skipped to its end in one step.
+    // taken[g] counts the courses chosen from group g so far.
+    private void groupedHelper(int depth, BitSet available, List<Course> order, int[] groupOf, int[] groupEnd, List<CourseGroup> groups,
+                               int[] taken, BitSet[] candidates, List<Section> currentCombination, List<List<Section>> validCombinations) {
+        nodesVisited++;
+        // The group just decided must still be able to reach its minimum, as must the next one
+        if (depth > 0 && groupOf[depth - 1] >= 0 && cannotReachMin(groupOf[depth - 1], depth, order, groupEnd, groups, taken, available)
+                || depth < order.size() && groupOf[depth] >= 0 && cannotReachMin(groupOf[depth], depth, order, groupEnd, groups, taken, available)) {
+            branchesPruned++;
+            return;
+        }
+        if (depth == order.size()) {
+            leavesVisited++;
+            validCombinations.add(new ArrayList<>(currentCombination));
+            return;
+        }
+
+        int group = groupOf[depth];
+        if (group >= 0 && taken[group] == groups.get(group).getMax()) {
+            groupedHelper(groupEnd[group], available, order, groupOf, groupEnd, groups, taken, candidates, currentCombination, validCombinations);
+            return;
+        }
+        Course currentCourse = order.get(depth);
+        int from = index.firstSectionOf(currentCourse);
+        int to = index.endSectionOf(currentCourse);
+        BitSet next = candidates[depth + 1];
+        int visited = 0;
+        if (group >= 0) {
+            taken[group]++;
+        }
+        for (int id = available.nextSetBit(from); id >= 0 && id < to; id = available.nextSetBit(id + 1)) {
+            visited++;
+            next.clear();
+            next.or(available);
+            next.and(index.compatibleWith(id));
+            currentCombination.add(index.getSection(id));
+            groupedHelper(depth + 1, next, order, groupOf, groupEnd, groups, taken, candidates, currentCombination, validCombinations);
+            currentCombination.remove(currentCombination.size() - 1);
+        }
+        if (group >= 0) {
+            taken[group]--;
+        }
+        branchesPruned += (to - from) - visited;
+        if (group >= 0) {
+            groupedHelper(depth + 1, available, order, groupOf, groupEnd, groups, taken, candidates, currentCombination, validCombinations);
+        }
+    }
+
+    // True if group g has too few courses left from depth on, with a section still available, to reach its minimum.
+    private boolean cannotReachMin(int g, int depth, List<Course> order, int[] groupEnd, List<CourseGroup> groups, int[] taken, BitSet available) {
+        int needed = groups.get(g).getMin() - taken[g];
+        for (int i = depth; i < groupEnd[g] && needed > 0; i++) {
+            int id = available.nextSetBit(index.firstSectionOf(order.get(i)));
+            if (id >= 0 && id < index.endSectionOf(order.get(i))) {
+                needed--;
+            }
+        }
+        return needed > 0;
+    }
+
+    // The sections of the requested courses that pass the constraints and any pins: the root of every search.
+    private BitSet allowedSections() {
+        BitSet allowed = new BitSet(index.getSectionCount());
+        for (Course course : courses) {
+            Section pin = pinned.get(course);
+            for (int id = index.firstSectionOf(course); id < index.endSectionOf(course); id++) {
+                Section section = index.getSection(id);
+                if ((pin == null || pin == section) && constraints.accepts(section)) {
+                    allowed.set(id);
+                }
+            }
+        }
+        return allowed;
+    }
+
+    // Forks one task per section for the leading courses, until there are enough tasks to
+    // keep every worker busy. Never splits the last course: its tasks would be single leaves.
+    private int splitDepth() {
+        long tasks = 1;
+        int depth = 0;
+        while (depth < courses.size() - 1 && tasks < (long) parallelism * TASKS_PER_THREAD) {
+            tasks *= Math.max(1, courses.get(depth).getSections().size());
+            depth++;
+        }
+        return depth;
+    }
+
+    private void topCombinationsHelper(ScheduleScorer scorer, int k, int courseIndex, BitSet[] candidates, List<Section> currentCombination, PriorityQueue<RankedSchedule> best) {
+        nodesVisited++;
+        // A schedule found later loses ties, so a bound equal to the k-th best cannot win either
+        if (best.size() == k && scorer.lowerBound(currentCombination) >= best.peek().score) {
+            branchesPruned++;
+            return;
+        }
+        if (courseIndex == courses.size()) {
+            leavesVisited++;
+            double score = scorer.score(currentCombination);
+            if (best.size() < k || score < best.peek().score) {
+                best.add(new RankedSchedule(new ArrayList<>(currentCombination), score, leavesVisited));
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+            return;
+        }
+
+        Course currentCourse = courses.get(courseIndex);
+        int from = index.firstSectionOf(currentCourse);
+        int to = index.endSectionOf(currentCourse);
+        BitSet available = candidates[courseIndex];
+        BitSet next = candidates[courseIndex + 1];
+        for (int id = available.nextSetBit(from); id >= 0 && id < to; id = available.nextSetBit(id + 1)) {
+            next.clear();
+            next.or(available);
+            next.and(index.compatibleWith(id));
+            currentCombination.add(index.getSection(id));
+            topCombinationsHelper(scorer, k, courseIndex + 1, candidates, currentCombination, best);
+            currentCombination.remove(currentCombination.size() - 1);
+        }
+    }
+
+    private static class RankedSchedule {
+        final List<Section> sections;
+        final double score;
+        final long order; // position in enumeration order, to break ties
+
+        RankedSchedule(List<Section> sections, double score, long order) {
+            this.sections = sections;
+            this.score = score;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Searches the subtree below a partial schedule. Above splitDepth every candidate
+     * section becomes its own subtask; results are joined in section order so the output
+     * matches a sequential depth-first search.
+     */
+    @SuppressWarnings("serial")
+    private class CombinationTask extends RecursiveTask<List<List<Section>>> {
+        private final int courseIndex;
+        private final BitSet candidates; // sections that fit alongside every section in prefix
+        private final List<Section> prefix;
+        private final int splitDepth;
+        private long nodesVisited;
+        private long leavesVisited;
+        private long branchesPruned;
+
+        CombinationTask(int courseIndex, BitSet candidates, List<Section> prefix, int splitDepth) {
+            this.courseIndex = courseIndex;
+            this.candidates = candidates;
+            this.prefix = prefix;
+            this.splitDepth = splitDepth;
+        }
+
+        @Override
+        protected List<List<Section>> compute() {
+            List<List<Section>> validCombinations = new ArrayList<>();
+            if (courseIndex >= splitDepth || courseIndex == courses.size()) {
+                // candidates[d] holds the sections that fit alongside the first d chosen sections
+                BitSet[] levels = new BitSet[courses.size() + 1];
+                for (int i = courseIndex + 1; i < levels.length; i++) {
+                    levels[i] = new BitSet(index.getSectionCount());
+                }
+                levels[courseIndex] = candidates;
+                generateCombinationsHelper(courseIndex, levels, new ArrayList<>(prefix), validCombinations);
+                setRawResult(validCombinations);
+                return validCombinations;
+            }
+
+            nodesVisited++;
+            Course currentCourse = courses.get(courseIndex);
+            int from = index.firstSectionOf(currentCourse);
+            int to = index.endSectionOf(currentCourse);
+            List<CombinationTask> subtasks = new ArrayList<>();
+            for (int id = candidates.nextSetBit(from); id >= 0 && id < to; id = candidates.nextSetBit(id + 1)) {
+                BitSet next = (BitSet) candidates.clone();
+                next.and(index.compatibleWith(id));
+                List<Section> nextPrefix = new ArrayList<>(prefix);
+                nextPrefix.add(index.getSection(id));
+                subtasks.add(new CombinationTask(courseIndex + 1, next, nextPrefix, splitDepth));
+            }
+            branchesPruned += (to - from) - subtasks.size();
+            invokeAll(subtasks);
+            for (CombinationTask subtask : subtasks) {
+                validCombinations.addAll(subtask.join());
+                nodesVisited += subtask.nodesVisited;
+                leavesVisited += subtask.leavesVisited;
+                branchesPruned += subtask.branchesPruned;
+            }
+            setRawResult(validCombinations);
+            return validCombinations;
+        }
+
+        // Backtracking search over the compatibility index: the candidates for the next course
+        // are the intersection of the compatible sets of every section chosen so far, so a
+        // clash cuts off its whole subtree and every leaf reached is a valid schedule.
+        private void generateCombinationsHelper(int courseIndex, BitSet[] candidates, List<Section> currentCombination, List<List<Section>> validCombinations) {
+            nodesVisited++;
+            if (courseIndex == courses.size()) {
+                leavesVisited++;
+                validCombinations.add(new ArrayList<>(currentCombination));
+                return;
+            }
+
+            Course currentCourse = courses.get(courseIndex);
+            int from = index.firstSectionOf(currentCourse);
+            int to = index.endSectionOf(currentCourse);
+            BitSet available = candidates[courseIndex];
+            BitSet next = candidates[courseIndex + 1];
+            int visited = 0;
+            for (int id = available.nextSetBit(from); id >= 0 && id < to; id = available.nextSetBit(id + 1)) {
+                visited++;
+                next.clear();
+                next.or(available);
+                next.and(index.compatibleWith(id));
+                currentCombination.add(index.getSection(id));
+                generateCombinationsHelper(courseIndex + 1, candidates, currentCombination, validCombinations);
+                currentCombination.remove(currentCombination.size() - 1);
+            }
+            branchesPruned += (to - from) - visited;
+        }
+    }
+
+    /**
+     * Iterative form of the backtracking search. The first course's sections are limited to
+     * [low, high) so that the range can be split between spliterators.
+     */
+    private class CombinationSpliterator implements Spliterator<List<Section>> {
+        private int low;
+        private final int high;
+        private final BitSet[] levels;     // levels[d] holds the sections that fit the first d chosen
+        private final int[] position;      // last section id tried at each depth
+        private final Section[] chosen;
+        private final int[][] representativeOf;
+        private final BitSet[] dead;       // representatives whose subtree is empty under the current prefix
+        private final boolean[] live;      // whether the current choice at each depth has emitted anything
+        private int depth;
+        private boolean started;
+        private boolean exhausted;
+
+        CombinationSpliterator(int low, int high) {
+            this.low = low;
+            this.high = high;
+            int n = courses.size();
+            levels = new BitSet[n + 1];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = new BitSet(index.getSectionCount());
+            }
+            levels[0] = allowedSections();
+            position = new int[n + 1];
+            position[0] = low - 1;
+            chosen = new Section[n];
+            representativeOf = representatives(levels[0]);
+            dead = new BitSet[n];
+            for (int i = 0; i < n; i++) {
+                dead[i] = new BitSet(index.getSectionCount());
+            }
+            live = new boolean[n];
+        }
+
+        // Time-identical sections have the same subtree, so one found empty need not be walked again.
+        private int representative(int depth, int id) {
+            return representativeOf[depth][id - index.firstSectionOf(courses.get(depth))];
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<Section>> action) {
+            if (exhausted) {
+                return false;
+            }
+            int n = courses.size();
+            if (n == 0) {
+                exhausted = true;
+                action.accept(new ArrayList<>());
+                return true;
+            }
+            started = true;
+            while (true) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Schedule search interrupted");
+                }
+                if (depth == n) {
+                    depth--; // resume after the schedule emitted last time
+                }
+                Course course = courses.get(depth);
+                int to = depth == 0 ? high : index.endSectionOf(course);
+                int id = levels[depth].nextSetBit(position[depth] + 1);
+                while (id >= 0 && id < to && dead[depth].get(representative(depth, id))) {
+                    id = levels[depth].nextSetBit(id + 1);
+                }
+                if (id < 0 || id >= to) {
+                    if (depth == 0) {
+                        exhausted = true;
+                        return false;
+                    }
+                    depth--;
+                    if (!live[depth]) {
+                        dead[depth].set(representative(depth, position[depth]));
+                    }
+                    continue;
+                }
+                position[depth] = id;
+                live[depth] = false;
+                chosen[depth] = index.getSection(id);
+                BitSet next = levels[depth + 1];
+                next.clear();
+                next.or(levels[depth]);
+                next.and(index.compatibleWith(id));
+                depth++;
+                if (depth == n) {
+                    Arrays.fill(live, true);
+                    SchedulerMetrics.emitted(1); // Compiled away unless metrics are enabled
+                    action.accept(new ArrayList<>(Arrays.asList(chosen)));
+                    return true;
+                }
+                position[depth] = index.firstSectionOf(courses.get(depth)) - 1;
+                dead[depth].clear();
+            }
+        }
+
+        @Override
+        public Spliterator<List<Section>> trySplit() {
+            if (started || courses.isEmpty()) {
+                return null;
+            }
+            int mid = (low + high) >>> 1;
+            if (mid == low) {
+                return null;
+            }
+            // An ordered spliterator hands out the prefix and keeps the suffix
+            CombinationSpliterator prefix = new CombinationSpliterator(low, mid);
+            low = mid;
+            position[0] = mid - 1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            if (exhausted) {
+                return 0;
+            }
+            // Upper bound: every combination of the remaining sections
+            long size = Math.max(0, high - low);
+            for (int i = 1; i < courses.size(); i++) {
+                int sections = Math.max(1, courses.get(i).getSections().size());
+                if (size > Long.MAX_VALUE / sections) {
+                    return Long.MAX_VALUE;
+                }
+                size *= sections;
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL;
+        }
     }
 }
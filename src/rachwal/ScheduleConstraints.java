@@ -0,0 +1,77 @@
+package rachwal;
+
+import java.time.LocalTime;
+import java.util.Objects;
+
+/**
+ * Per-section restrictions applied by {@link ScheduleCombinations} before the search starts:
+ * no meeting before the earliest start, none after the latest end, and optionally only
+ * sections with open seats. Sections that fail are never branched on.
+ */
+public final class ScheduleConstraints {
+    public static final ScheduleConstraints NONE = new ScheduleConstraints(null, null, false);
+
+    private final LocalTime earliestStartTime;
+    private final LocalTime latestEndTime;
+    private final boolean availableSeatsOnly;
+
+    // Either time may be null for no limit.
+    public ScheduleConstraints(LocalTime earliestStartTime, LocalTime latestEndTime, boolean availableSeatsOnly) {
+        this.earliestStartTime = earliestStartTime;
+        this.latestEndTime = latestEndTime;
+        this.availableSeatsOnly = availableSeatsOnly;
+    }
+
+    public LocalTime getEarliestStartTime() {
+        return earliestStartTime;
+    }
+
+    public LocalTime getLatestEndTime() {
+        return latestEndTime;
+    }
+
+    public boolean isAvailableSeatsOnly() {
+        return availableSeatsOnly;
+    }
+
+    public boolean accepts(Section section) {
+        if (availableSeatsOnly && section.getAvailable() <= 0) {
+            return false;
+        }
+        for (Meeting meeting : section.getMeetings()) {
+            if (earliestStartTime != null && meeting.getStartTime() != null && meeting.getStartTime().isBefore(earliestStartTime)) {
+                return false;
+            }
+            if (latestEndTime != null && meeting.getEndTime() != null && meeting.getEndTime().isAfter(latestEndTime)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ScheduleConstraints)) {
+            return false;
+        }
+        ScheduleConstraints other = (ScheduleConstraints) o;
+        return availableSeatsOnly == other.availableSeatsOnly
+                && Objects.equals(earliestStartTime, other.earliestStartTime)
+                && Objects.equals(latestEndTime, other.latestEndTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(earliestStartTime, latestEndTime, availableSeatsOnly);
+    }
+
+    @Override
+    public String toString() {
+        return "earliest start " + (earliestStartTime == null ? "any" : earliestStartTime)
+                + ", latest end " + (latestEndTime == null ? "any" : latestEndTime)
+                + (availableSeatsOnly ? ", open seats only" : "");
+    }
+}
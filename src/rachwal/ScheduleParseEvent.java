@@ -0,0 +1,28 @@
+package rachwal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// One catalogue parse, recorded while a JFR recording has rachwal.Parse enabled.
+@Name("rachwal.Parse")
+@Label("Catalogue Parse")
+@Category("Course Scheduler")
+@Description("Parsing a catalogue file, in the text format or the registrar's JSON feed")
+class ScheduleParseEvent extends Event {
+    @Label("File")
+    String file;
+
+    @Label("Lines")
+    long lines;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Courses")
+    int courses;
+}
@@ -1,152 +1,405 @@
 package rachwal;
 
 import java.io.*; // Import for handling input and output
+import java.nio.CharBuffer; // Import for decoded chunk text
+import java.nio.MappedByteBuffer; // Import for memory-mapped file regions
+import java.nio.channels.FileChannel; // Import for mapping the file
+import java.nio.charset.StandardCharsets; // Import for UTF-8 decoding
 import java.nio.file.*; // Import for handling file paths and reading files
+import java.time.DateTimeException; // Import for rejecting impossible dates
+import java.time.LocalDate; // Import for handling meeting and section dates
 import java.time.LocalTime; // Import for handling local time
-import java.time.format.DateTimeFormatter; // Import for formatting and parsing date-time objects
-import java.time.format.DateTimeParseException; // Import for handling exceptions during date-time parsing
 import java.util.ArrayList; // Import for using ArrayList
-import java.util.Arrays; // Import for using Arrays utility methods
+import java.util.HashMap; // Import for using HashMap
 import java.util.List; // Import for using List interface
-import java.util.Locale; // Import for using Locale
-import java.util.stream.Collectors; // Import for using stream operations
+import java.util.Map; // Import for using Map interface
+import java.util.concurrent.ExecutionException; // Import for unwrapping chunk failures
+import java.util.concurrent.ExecutorService; // Import for the chunk worker pool
+import java.util.concurrent.Executors; // Import for creating the worker pool
+import java.util.concurrent.Future; // Import for collecting chunk results in order
+import java.util.concurrent.atomic.LongAdder; // Import for counting lines across chunks
+import java.util.zip.Checksum; // Import for hashing the bytes parsed
 
 public class ScheduleParser {
 
+    private static final byte[] COURSE_MARKER = "\nCourse ID:".getBytes(StandardCharsets.US_ASCII);
+    private static final long MIN_CHUNK_BYTES = 1L << 20; // Smaller files are not worth splitting
+    private static final long MAX_CHUNK_BYTES = 256L << 20; // Bounds the decoded text held per worker
+    private static final int SCAN_WINDOW_BYTES = 1 << 20;
+
     // Method to parse courses from a file
     public List<Course> parseCoursesFromFile(String filePath) throws IOException {
+        return parseCoursesFromFile(filePath, null);
+    }
+
+    // As above, feeding the bytes read into the checksum if one is given (for the catalogue snapshot)
+    List<Course> parseCoursesFromFile(String filePath, Checksum checksum) throws IOException {
+        ScheduleParseEvent event = new ScheduleParseEvent(); // JFR event, only committed while a recording wants it
+        event.begin();
+        long start = System.nanoTime();
+        LongAdder lines = new LongAdder(); // Lines read, for the metrics
+        List<Course> courses;
+        // Try-with-resources to ensure the reader is closed after use
+        try (BufferedReader reader = CatalogueLoader.newReader(filePath, checksum)) {
+            courses = parseCourses(reader, lines);
+        }
+        SchedulerMetrics.parsed(event, filePath, Files.size(Paths.get(filePath)), lines.sum(), courses.size(), System.nanoTime() - start);
+        return courses;
+    }
+
+    /**
+     * Parses a large catalogue on several threads. The file is memory-mapped and cut into
+     * chunks at "Course ID:" lines, so every course lies wholly inside one chunk; chunks are
+     * parsed independently and joined in file order, giving the same list as
+     * parseCoursesFromFile().
+     */
+    public List<Course> parseCoursesFromFileInParallel(String filePath, int parallelism) throws IOException {
+        ScheduleParseEvent event = new ScheduleParseEvent();
+        event.begin();
+        long start = System.nanoTime();
+        LongAdder lines = new LongAdder();
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Course> courses = parseChunks(filePath, channel, size, parallelism, lines);
+            SchedulerMetrics.parsed(event, filePath, size, lines.sum(), courses.size(), System.nanoTime() - start);
+            return courses;
+        }
+    }
+
+    // Cuts the mapped file at course boundaries and parses the chunks, joined in file order.
+    private List<Course> parseChunks(String filePath, FileChannel channel, long size, int parallelism, LongAdder lines) throws IOException {
+        // A few chunks per thread so one dense chunk does not hold up the rest
+        long chunkBytes = Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, size / (parallelism * 4L)));
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        long next = chunkBytes;
+        while (next < size) {
+            long boundary = findCourseStart(channel, next, size);
+            if (boundary >= size) {
+                break;
+            }
+            boundaries.add(boundary);
+            next = boundary + chunkBytes;
+        }
+        boundaries.add(size);
+
+        if (boundaries.size() == 2 || parallelism <= 1) {
+            return parseChunk(channel, 0, size, lines); // Nothing to split
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, boundaries.size() - 1));
+        try {
+            List<Future<List<Course>>> chunks = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.size(); i++) {
+                long from = boundaries.get(i);
+                long to = boundaries.get(i + 1);
+                chunks.add(executor.submit(() -> parseChunk(channel, from, to, lines)));
+            }
+            List<Course> courses = new ArrayList<>();
+            for (Future<List<Course>> chunk : chunks) { // Joined in file order
+                courses.addAll(chunk.get());
+            }
+            return courses;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing " + filePath);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to parse " + filePath, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Course> parseChunk(FileChannel channel, long from, long to, LongAdder lines) throws IOException {
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        CharBuffer text = StandardCharsets.UTF_8.newDecoder().decode(bytes); // Rejects malformed input like Files.newBufferedReader
+        try (BufferedReader reader = new BufferedReader(new CharArrayReader(text.array(), text.arrayOffset() + text.position(), text.remaining()))) {
+            return parseCourses(reader, lines);
+        }
+    }
+
+    // Offset of the first "Course ID:" line starting at or after the given offset, or size if none.
+    private static long findCourseStart(FileChannel channel, long from, long size) throws IOException {
+        long windowStart = from - 1; // Include the preceding newline
+        while (windowStart + COURSE_MARKER.length <= size) {
+            int length = (int) Math.min(SCAN_WINDOW_BYTES, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+            for (int i = 0; i + COURSE_MARKER.length <= length; i++) {
+                int j = 0;
+                while (j < COURSE_MARKER.length && window.get(i + j) == COURSE_MARKER[j]) {
+                    j++;
+                }
+                if (j == COURSE_MARKER.length) {
+                    return windowStart + i + 1;
+                }
+            }
+            if (windowStart + length >= size) {
+                break;
+            }
+            windowStart += length - COURSE_MARKER.length + 1; // Overlap so a marker across windows is not missed
+        }
+        return size;
+    }
+
+    // Single pass over the lines: each line is dispatched once on its prefix and its value is
+    // parsed in place from character offsets, without trim/split copies or a formatter.
+    // Lines read are added to the given counter once, at the end.
+    List<Course> parseCourses(BufferedReader reader, LongAdder lines) throws IOException {
         List<Course> courses = new ArrayList<>(); // List to store parsed courses
         Course currentCourse = null; // Variable to hold the current course being parsed
         Section currentSection = null; // Variable to hold the current section being parsed
         Meeting currentMeeting = null; // Variable to hold the current meeting being parsed
+        Map<String, String> strings = new HashMap<>(); // Rooms, methods, titles and names repeat; keep one copy of each
+
+        long lineCount = 0; // Kept in a local so the loop does not touch shared state
+        String line; // Variable to hold each line read from the file
+        while ((line = reader.readLine()) != null) { // Read lines until end of file
+            lineCount++;
+            if (line.startsWith("Course ID:")) { // Start of a new course
+                if (currentCourse != null) { // If a current course is being parsed
+                    if (currentSection != null) { // If a current section is being parsed
+                        currentSection.inheritDates(); // Meetings without dates run for the whole section
+                        currentCourse.getSections().add(currentSection); // Add the current section to the current course
+                        currentSection = null; // Reset current section
+                    }
+                    courses.add(currentCourse); // Add the current course to the list of courses
+                }
+                currentCourse = new Course(); // Create a new course object
+                currentCourse.setCourseId(value(line, "Course ID:".length())); // Set the course ID
+                continue;
+            }
+            if (line.startsWith("Section ")) { // Start of a new section, e.g. "Section 1:"
+                if (currentSection != null) { // If a current section is being parsed
+                    currentSection.inheritDates(); // Meetings without dates run for the whole section
+                    currentCourse.getSections().add(currentSection); // Add the current section to the current course
+                }
+                currentSection = new Section(); // Create a new section object
+                currentSection.setCourse(currentCourse); // Set the reference to the parent course
+                currentSection.setSectionNumber(parseInt(line, "Section ".length())); // Set the section number
+                continue;
+            }
 
-        // Formatter to parse time strings
-        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("hh:mm a", Locale.US);
+            int start = 0; // Skip indentation once instead of trimming for every comparison
+            while (start < line.length() && line.charAt(start) <= ' ') {
+                start++;
+            }
+            if (start == line.length()) {
+                continue; // Blank line
+            }
 
-        // Try-with-resources to ensure the reader is closed after use
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
-            String line; // Variable to hold each line read from the file
-            while ((line = reader.readLine()) != null) { // Read lines until end of file
-                if (line.startsWith("Course ID:")) { // Check if the line starts with "Course ID:"
-                    if (currentCourse != null) { // If a current course is being parsed
-                        if (currentSection != null) { // If a current section is being parsed
-                            currentCourse.getSections().add(currentSection); // Add the current section to the current course
-                            currentSection = null; // Reset current section
+            switch (line.charAt(start)) { // Only prefixes sharing this first letter need comparing
+                case 'T':
+                    if (line.startsWith("Title:", start)) {
+                        currentSection.setTitle(intern(strings, value(line, start + "Title:".length())));
+                    }
+                    break;
+                case 'C':
+                    if (line.startsWith("Capacity:", start)) {
+                        currentSection.setCapacity(parseInt(line, start + "Capacity:".length()));
+                    } else if (line.startsWith("Corrected Start Time:", start)) {
+                        LocalTime startTime = parseTime(line, start + "Corrected Start Time:".length());
+                        if (startTime != null) {
+                            currentMeeting.setStartTime(startTime);
+                        } else {
+                            System.err.println("Failed to parse start time: '" + value(line, start + "Corrected Start Time:".length()) + "'"); // Print error if parsing fails
+                        }
+                    } else if (line.startsWith("Corrected End Time:", start)) {
+                        LocalTime endTime = parseTime(line, start + "Corrected End Time:".length());
+                        if (endTime != null) {
+                            currentMeeting.setEndTime(endTime);
+                        } else {
+                            System.err.println("Failed to parse end time: '" + value(line, start + "Corrected End Time:".length()) + "'"); // Print error if parsing fails
                         }
-                        courses.add(currentCourse); // Add the current course to the list of courses
                     }
-                    currentCourse = new Course(); // Create a new course object
-                    String courseId = line.split(": ")[1].trim(); // Extract the course ID
-                    currentCourse.setCourseId(courseId); // Set the course ID
-                } else if (line.startsWith("Section ")) { // Check if the line starts with "Section "
-                    if (currentSection != null) { // If a current section is being parsed
-                        currentCourse.getSections().add(currentSection); // Add the current section to the current course
+                    break;
+                case 'E':
+                    if (line.startsWith("Enrolled:", start)) {
+                        currentSection.setEnrolled(parseInt(line, start + "Enrolled:".length()));
+                    } else if (line.startsWith("End Date:", start)) { // Inside a meeting it dates the meeting, otherwise the section
+                        LocalDate endDate = parseDate(line, start + "End Date:".length());
+                        if (endDate == null) {
+                            System.err.println("Failed to parse end date: '" + value(line, start + "End Date:".length()) + "'"); // Print error if parsing fails
+                        } else if (currentMeeting != null) {
+                            currentMeeting.setEndDate(endDate);
+                        } else {
+                            currentSection.setEndDate(endDate);
+                        }
                     }
-                    currentSection = new Section(); // Create a new section object
-                    currentSection.setCourse(currentCourse); // Set the reference to the parent course
-                    int sectionNumber = Integer.parseInt(line.split(" ")[1].replace(":", "").trim()); // Extract the section number and parse it as an int
-                    currentSection.setSectionNumber(sectionNumber); // Set the section number
-                } else if (line.trim().startsWith("Title:")) { // Check if the line starts with "Title:"
-                    String title = line.split(": ")[1].trim(); // Extract the title
-                    currentSection.setTitle(title); // Set the title
-                } else if (line.trim().startsWith("Capacity:")) { // Check if the line starts with "Capacity:"
-                    int capacity = Integer.parseInt(line.split(": ")[1].trim()); // Extract the capacity
-                    currentSection.setCapacity(capacity); // Set the capacity
-                } else if (line.trim().startsWith("Enrolled:")) { // Check if the line starts with "Enrolled:"
-                    int enrolled = Integer.parseInt(line.split(": ")[1].trim()); // Extract the number of enrolled students
-                    currentSection.setEnrolled(enrolled); // Set the number of enrolled students
-                } else if (line.trim().startsWith("Available:")) { // Check if the line starts with "Available:"
-                    int available = Integer.parseInt(line.split(": ")[1].trim()); // Extract the number of available seats
-                    currentSection.setAvailable(available); // Set the number of available seats
-                } else if (line.trim().startsWith("Instructional Method:")) { // Check if the line starts with "Instructional Method:"
-                    if (currentMeeting != null) { // If a current meeting is being parsed
-                        currentSection.addMeeting(currentMeeting); // Add the current meeting to the current section
+                    break;
+                case 'S':
+                    if (line.startsWith("Start Date:", start)) { // Inside a meeting it dates the meeting, otherwise the section
+                        LocalDate startDate = parseDate(line, start + "Start Date:".length());
+                        if (startDate == null) {
+                            System.err.println("Failed to parse start date: '" + value(line, start + "Start Date:".length()) + "'"); // Print error if parsing fails
+                        } else if (currentMeeting != null) {
+                            currentMeeting.setStartDate(startDate);
+                        } else {
+                            currentSection.setStartDate(startDate);
+                        }
                     }
-                    currentMeeting = new Meeting(); // Create a new meeting object
-                    String method = line.split(": ")[1].trim(); // Extract the instructional method
-                    currentMeeting.setType(method); // Set the instructional method
-                } else if (line.trim().startsWith("Corrected Start Time:")) { // Check if the line starts with "Corrected Start Time:"
-                    String startTimeStr = line.split(": ")[1].trim(); // Extract the start time string
-                    startTimeStr = startTimeStr.toUpperCase(Locale.US); // Ensure AM/PM is uppercase
-                    try {
-                        LocalTime startTime = LocalTime.parse(startTimeStr, timeFormatter); // Parse the start time
-                        currentMeeting.setStartTime(startTime); // Set the start time
-                    } catch (DateTimeParseException e) {
-                        System.err.println("Failed to parse start time: '" + startTimeStr + "'"); // Print error if parsing fails
+                    break;
+                case 'A':
+                    if (line.startsWith("Available:", start)) {
+                        currentSection.setAvailable(parseInt(line, start + "Available:".length()));
                     }
-                } else if (line.trim().startsWith("Corrected End Time:")) { // Check if the line starts with "Corrected End Time:"
-                    String endTimeStr = line.split(": ")[1].trim(); // Extract the end time string
-                    endTimeStr = endTimeStr.toUpperCase(Locale.US); // Ensure AM/PM is uppercase
-                    try {
-                        LocalTime endTime = LocalTime.parse(endTimeStr, timeFormatter); // Parse the end time
-                        currentMeeting.setEndTime(endTime); // Set the end time
-                    } catch (DateTimeParseException e) {
-                        System.err.println("Failed to parse end time: '" + endTimeStr + "'"); // Print error if parsing fails
+                    break;
+                case 'I':
+                    if (line.startsWith("Instructional Method:", start)) { // Start of a new meeting
+                        if (currentMeeting != null) { // If a current meeting is being parsed
+                            currentSection.addMeeting(currentMeeting); // Add the current meeting to the current section
+                        }
+                        currentMeeting = new Meeting(); // Create a new meeting object
+                        currentMeeting.setType(intern(strings, value(line, start + "Instructional Method:".length())));
                     }
-                } else if (line.trim().startsWith("Days:")) { // Check if the line starts with "Days:"
-                    String daysStr = line.substring(line.indexOf('[') + 1, line.indexOf(']')); // Extract the days string
-                    List<Integer> days = Arrays.stream(daysStr.split(",")).map(String::trim).map(Integer::parseInt).collect(Collectors.toList()); // Parse days into a list of integers
-                    currentMeeting.setDays(days); // Set the days
-                } else if (line.trim().startsWith("Room:")) { // Check if the line starts with "Room:"
-                    String room = line.split(": ")[1].trim(); // Extract the room
-                    currentMeeting.setRoom(room); // Set the room
-                    currentSection.addMeeting(currentMeeting); // Add the current meeting to the current section
-                    currentMeeting = null; // Reset current meeting
-                } else if (line.trim().startsWith("Faculty ID:")) { // Check if the line starts with "Faculty ID:"
-                    Faculty faculty = new Faculty(); // Create a new faculty object
-                    faculty.setFacultyId(line.split(": ")[1].trim()); // Extract and set the faculty ID
-                    line = reader.readLine(); // Read the next line for the faculty name
-                    faculty.setFacultyName(line.split(": ")[1].trim()); // Extract and set the faculty name
-                    currentSection.addFaculty(faculty); // Add the faculty to the current section
-                }
-            }
-            // Add the last section and course
-            if (currentSection != null) {
-                currentCourse.getSections().add(currentSection); // Add the last section to the current course
-            }
-            if (currentCourse != null) {
-                courses.add(currentCourse); // Add the last course to the list of courses
+                    break;
+                case 'D':
+                    if (line.startsWith("Days:", start)) {
+                        currentMeeting.setDays(parseDays(line, start + "Days:".length()));
+                    }
+                    break;
+                case 'R':
+                    if (line.startsWith("Room:", start)) { // Room is the last line of a meeting
+                        currentMeeting.setRoom(intern(strings, value(line, start + "Room:".length())));
+                        currentSection.addMeeting(currentMeeting); // Add the current meeting to the current section
+                        currentMeeting = null; // Reset current meeting
+                    }
+                    break;
+                case 'F':
+                    if (line.startsWith("Faculty ID:", start)) { // The faculty name follows on the next line
+                        Faculty faculty = new Faculty(); // Create a new faculty object
+                        faculty.setFacultyId(intern(strings, value(line, start + "Faculty ID:".length())));
+                        line = reader.readLine(); // Read the next line for the faculty name
+                        lineCount++;
+                        int colon = line.indexOf(':');
+                        faculty.setFacultyName(intern(strings, value(line, colon + 1)));
+                        currentSection.addFaculty(faculty); // Add the faculty to the current section
+                    }
+                    break;
+                default:
+                    break;
             }
         }
+        // Add the last section and course
+        if (currentSection != null) {
+            currentSection.inheritDates(); // Meetings without dates run for the whole section
+            currentCourse.getSections().add(currentSection); // Add the last section to the current course
+        }
+        if (currentCourse != null) {
+            courses.add(currentCourse); // Add the last course to the list of courses
+        }
+        lines.add(lineCount);
         return courses; // Return the list of parsed courses
     }
 
-    public static void main(String[] args) {
-        String filePath = "C:\\Users\\Charles\\Desktop\\winter.txt"; // Replace with the actual file path
-
-        // Create a Path object from the filePath
-        Path path = Paths.get(filePath);
-
-        // Check if the file exists and is readable
-        if (Files.exists(path) && Files.isReadable(path)) {
-        	System.out.println("it gets here");
-            ScheduleParser parser = new ScheduleParser(); // Create a new ScheduleParser object
-            try {
-                List<Course> courses = parser.parseCoursesFromFile(filePath); // Parse courses from the file
-                courses.forEach(course -> { // Loop through each course
-                    System.out.println("Course ID: " + course.getCourseId()); // Print the course ID
-                    course.getSections().forEach(section -> { // Loop through each section in the course
-                        System.out.println("  Section Number: " + section.getSectionNumber()); // Print the section number
-                        System.out.println("    Title: " + section.getTitle()); // Print the section title
-                        section.getMeetings().forEach(meeting -> { // Loop through each meeting in the section
-                            System.out.println("      Meeting Type: " + meeting.getType()); // Print the meeting type
-                            System.out.println("      Start Time: " + meeting.getStartTime()); // Print the start time
-                            System.out.println("      End Time: " + meeting.getEndTime()); // Print the end time
-                            System.out.println("      Days: " + meeting.getDays()); // Print the days
-                            System.out.println("      Room: " + meeting.getRoom()); // Print the room
-                        });
-                        section.getFaculties().forEach(faculty -> { // Loop through each faculty in the section
-                            System.out.println("      Faculty ID: " + faculty.getFacultyId()); // Print the faculty ID
-                            System.out.println("      Faculty Name: " + faculty.getFacultyName()); // Print the faculty name
-                        });
-                    });
-                });
-            } catch (IOException e) {
-                System.err.println("An error occurred while reading from the file: " + e.getMessage()); // Print error message if an exception occurs
+    // The rest of the line after the given offset, without surrounding whitespace. Values may
+    // contain ": " themselves (titles such as "Calculus: Part 1"); the old split(": ")[1]
+    // cut them off there, this keeps the whole value.
+    private static String value(String line, int from) {
+        int end = line.length();
+        while (from < end && line.charAt(from) <= ' ') {
+            from++;
+        }
+        while (end > from && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return line.substring(from, end);
+    }
+
+    private static String intern(Map<String, String> strings, String value) {
+        String existing = strings.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    // The first integer at or after the offset; stops at the first non-digit.
+    private static int parseInt(String line, int from) {
+        int i = from;
+        while (i < line.length() && line.charAt(i) == ' ') {
+            i++;
+        }
+        boolean negative = i < line.length() && line.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        int digitsStart = i;
+        int value = 0;
+        while (i < line.length() && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+            value = value * 10 + (line.charAt(i) - '0');
+            i++;
+        }
+        if (i == digitsStart) {
+            throw new NumberFormatException("No number in '" + line + "'");
+        }
+        return negative ? -value : value;
+    }
+
+    // Parses "hh:mm AM" or "h:mm pm"; returns null if the text is not a valid 12-hour time.
+    private static LocalTime parseTime(String line, int from) {
+        int i = from;
+        int length = line.length();
+        while (i < length && line.charAt(i) == ' ') {
+            i++;
+        }
+        int hour = 0;
+        int digits = 0;
+        while (i < length && digits < 2 && Character.isDigit(line.charAt(i))) {
+            hour = hour * 10 + (line.charAt(i++) - '0');
+            digits++;
+        }
+        if (digits == 0 || i + 6 > length || line.charAt(i) != ':'
+                || !Character.isDigit(line.charAt(i + 1)) || !Character.isDigit(line.charAt(i + 2)) || line.charAt(i + 3) != ' ') {
+            return null;
+        }
+        int minute = (line.charAt(i + 1) - '0') * 10 + (line.charAt(i + 2) - '0');
+        char meridiem = Character.toUpperCase(line.charAt(i + 4));
+        if (Character.toUpperCase(line.charAt(i + 5)) != 'M' || hour < 1 || hour > 12 || minute > 59
+                || (meridiem != 'A' && meridiem != 'P')) {
+            return null;
+        }
+        for (int j = i + 6; j < length; j++) {
+            if (line.charAt(j) > ' ') {
+                return null; // Trailing text after AM/PM
             }
-        } else {
-            System.err.println("File does not exist or is not readable: " + filePath); // Print error message if file doesn't exist or isn't readable
+        }
+        return LocalTime.of(hour % 12 + (meridiem == 'P' ? 12 : 0), minute);
+    }
+
+    // Parses "2025-01-06" or "1/6/2025"; returns null if the text is not a valid date.
+    private static LocalDate parseDate(String line, int from) {
+        String text = value(line, from);
+        boolean iso = text.indexOf('-') > 0;
+        String[] parts = text.split(iso ? "-" : "/");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            int year = Integer.parseInt(parts[iso ? 0 : 2]);
+            int month = Integer.parseInt(parts[iso ? 1 : 0]);
+            int day = Integer.parseInt(parts[iso ? 2 : 1]);
+            return LocalDate.of(year, month, day);
+        } catch (NumberFormatException | DateTimeException e) {
+            return null;
         }
     }
 
+    // Parses the list in "Days: [1, 3]".
+    private static List<Integer> parseDays(String line, int from) {
+        List<Integer> days = new ArrayList<>(3);
+        int i = line.indexOf('[', from) + 1;
+        int end = line.indexOf(']', i);
+        while (i < end) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int day = 0;
+                while (i < end && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+                    day = day * 10 + (line.charAt(i++) - '0');
+                }
+                days.add(day);
+            } else {
+                i++;
+            }
+        }
+        return days;
+    }
 }
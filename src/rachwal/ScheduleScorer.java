@@ -0,0 +1,174 @@
+package rachwal;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ranks schedules for {@link ScheduleCombinations#topCombinations}. Scores are penalties:
+ * lower is better.
+ */
+public interface ScheduleScorer {
+
+    // Penalty of a complete schedule.
+    double score(List<Section> schedule);
+
+    /**
+     * The lowest penalty any completion of this partial schedule could reach. It must never
+     * be higher than the score of a schedule that extends the partial one, or good schedules
+     * will be pruned. The default gives no bound, so nothing is pruned.
+     */
+    default double lowerBound(List<Section> partial) {
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    // Scales the penalty. A negative weight would turn the lower bound into an upper one and
+    // prune schedules that belong in the top k, so it is rejected.
+    default ScheduleScorer weighted(double weight) {
+        if (!(weight >= 0)) {
+            throw new IllegalArgumentException("Weight must be zero or more: " + weight);
+        }
+        ScheduleScorer scorer = this;
+        return new ScheduleScorer() {
+            public double score(List<Section> schedule) {
+                return weight * scorer.score(schedule);
+            }
+
+            public double lowerBound(List<Section> partial) {
+                double bound = scorer.lowerBound(partial);
+                return bound == Double.NEGATIVE_INFINITY ? bound : weight * bound;
+            }
+        };
+    }
+
+    // Sum of both penalties; the bound is the sum of both bounds.
+    default ScheduleScorer plus(ScheduleScorer other) {
+        ScheduleScorer scorer = this;
+        return new ScheduleScorer() {
+            public double score(List<Section> schedule) {
+                return scorer.score(schedule) + other.score(schedule);
+            }
+
+            public double lowerBound(List<Section> partial) {
+                return scorer.lowerBound(partial) + other.lowerBound(partial);
+            }
+        };
+    }
+
+    // Number of weekdays with at least one meeting.
+    static ScheduleScorer fewestDays() {
+        return new ScheduleScorer() {
+            public double score(List<Section> schedule) {
+                return Integer.bitCount(bookedDays(schedule));
+            }
+
+            public double lowerBound(List<Section> partial) {
+                return score(partial); // adding sections never frees up a day
+            }
+        };
+    }
+
+    // Minutes spent on campus between classes, summed over the week.
+    static ScheduleScorer leastIdleTime() {
+        return new ScheduleScorer() {
+            public double score(List<Section> schedule) {
+                List<int[]> intervals = new ArrayList<>(); // {day, start minute, end minute}
+                for (Section section : schedule) {
+                    for (Meeting meeting : section.getMeetings()) {
+                        if (meeting.getStartTime() == null || meeting.getEndTime() == null || meeting.getDays() == null) {
+                            continue;
+                        }
+                        int start = meeting.getStartTime().getHour() * 60 + meeting.getStartTime().getMinute();
+                        int end = meeting.getEndTime().getHour() * 60 + meeting.getEndTime().getMinute();
+                        for (int day : meeting.getDays()) {
+                            intervals.add(new int[] {day, start, end});
+                        }
+                    }
+                }
+                intervals.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+                int idle = 0;
+                int day = -1;
+                int busyUntil = 0;
+                for (int[] interval : intervals) {
+                    if (interval[0] != day) {
+                        day = interval[0];
+                        busyUntil = interval[2];
+                        continue;
+                    }
+                    if (interval[1] > busyUntil) {
+                        idle += interval[1] - busyUntil;
+                    }
+                    busyUntil = Math.max(busyUntil, interval[2]);
+                }
+                return idle;
+            }
+
+            public double lowerBound(List<Section> partial) {
+                return 0; // a later class can fill any gap
+            }
+        };
+    }
+
+    // Minutes before midnight at which the earliest class of the week starts, so every
+    // minute later is better, morning or afternoon.
+    static ScheduleScorer latestStart() {
+        return new ScheduleScorer() {
+            public double score(List<Section> schedule) {
+                int earliest = 24 * 60;
+                for (Section section : schedule) {
+                    for (Meeting meeting : section.getMeetings()) {
+                        if (meeting.getStartTime() != null) {
+                            earliest = Math.min(earliest, meeting.getStartTime().getHour() * 60 + meeting.getStartTime().getMinute());
+                        }
+                    }
+                }
+                return 24 * 60 - earliest;
+            }
+
+            public double lowerBound(List<Section> partial) {
+                return score(partial); // the earliest start only moves earlier
+            }
+        };
+    }
+
+    // Minutes after midnight at which the latest class of the week ends.
+    static ScheduleScorer earliestFinish() {
+        return new ScheduleScorer() {
+            public double score(List<Section> schedule) {
+                int latest = 0;
+                for (Section section : schedule) {
+                    for (Meeting meeting : section.getMeetings()) {
+                        if (meeting.getEndTime() != null) {
+                            latest = Math.max(latest, meeting.getEndTime().getHour() * 60 + meeting.getEndTime().getMinute());
+                        }
+                    }
+                }
+                return latest;
+            }
+
+            public double lowerBound(List<Section> partial) {
+                return score(partial); // the latest finish only moves later
+            }
+        };
+    }
+
+    // Bit d is set when some meeting with a time falls on day d.
+    private static int bookedDays(List<Section> schedule) {
+        int days = 0;
+        for (Section section : schedule) {
+            for (Meeting meeting : section.getMeetings()) {
+                LocalTime start = meeting.getStartTime();
+                LocalTime end = meeting.getEndTime();
+                if (start == null || end == null || meeting.getDays() == null || !start.isBefore(end)) {
+                    continue; // no scheduled time
+                }
+                for (int day : meeting.getDays()) {
+                    if (day >= 0 && day < 7) {
+                        days |= 1 << day;
+                    }
+                }
+            }
+        }
+        return days;
+    }
+}
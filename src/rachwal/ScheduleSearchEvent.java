@@ -0,0 +1,37 @@
+package rachwal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// One schedule search, recorded while a JFR recording has rachwal.Search enabled.
+@Name("rachwal.Search")
+@Label("Schedule Search")
+@Category("Course Scheduler")
+@Description("One search by ScheduleCombinations")
+class ScheduleSearchEvent extends Event {
+    @Label("Kind")
+    String kind;
+
+    @Label("Courses")
+    int courses;
+
+    @Label("Nodes Visited")
+    long nodesVisited;
+
+    @Label("Branches Pruned")
+    long branchesPruned;
+
+    @Label("Leaves Visited")
+    long leavesVisited;
+
+    @Label("Schedules")
+    long schedules;
+
+    @Label("Estimated Result Size")
+    @DataAmount
+    long resultBytes;
+}
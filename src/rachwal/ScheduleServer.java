@@ -0,0 +1,388 @@
+package rachwal;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small HTTP front end for the registration portal. It loads one catalogue at startup and
+ * answers schedule queries from memory as paged JSON:
+ *
+ *   GET /schedules?courses=ENGG*2100,CIS*1300&earliest=09:00&latest=17:00&open=true&page=0&size=20
+ *
+ * Seat counts change during registration. They are posted as a JSON array, applied to the
+ * catalogue in place, and drop the cached results they affect:
+ *
+ *   POST /seats  [{"course":"ENGG*2100","section":1,"capacity":40,"enrolled":40,"available":0}]
+ *
+ * Connections are handled on a virtual thread each where the JDK has them (21 and later)
+ * and on a fixed pool otherwise. Searches run on their own pool, one thread per concurrent
+ * search allowed, so a search holds its slot exactly as long as it runs. At most
+ * {@value #QUEUED_SEARCHES_PER_THREAD} searches per thread wait behind them; a request that
+ * finds the queue full, or whose search cannot start within the timeout, gets 503. One
+ * whose search does not finish within the timeout gets 504, and the search is interrupted.
+ * Pages are served from a {@link ScheduleCache}, and only as many schedules are searched as
+ * the page needs, up to the first {@value #MAX_PAGED_SCHEDULES}; deeper pages get 400.
+ *
+ * Usage: ScheduleServer catalogue [port] [maxConcurrentSearches] [timeoutMillis]
+ */
+public class ScheduleServer {
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_PAGED_SCHEDULES = 10_000;
+    private static final long CACHED_SCHEDULES = 1_000_000L;
+    private static final int FALLBACK_CONNECTION_THREADS = 200;
+    private static final int QUEUED_SEARCHES_PER_THREAD = 4;
+
+    private final ColumnarCatalogue catalogue;
+    private final CompatibilityIndex index;
+    private final ScheduleCache cache;
+    private final SeatUpdater seatUpdater; // Guarded by itself
+    private final ThreadPoolExecutor searchPool;
+    private final long timeoutMillis;
+
+    public ScheduleServer(List<Course> courses, int maxConcurrentSearches, long timeoutMillis) {
+        this(ColumnarCatalogue.of(courses), maxConcurrentSearches, timeoutMillis);
+    }
+
+    // Only the requested courses are ever built as objects.
+    public ScheduleServer(ColumnarCatalogue catalogue, int maxConcurrentSearches, long timeoutMillis) {
+        this.catalogue = catalogue;
+        this.index = new CompatibilityIndex(catalogue);
+        this.cache = new ScheduleCache(index, 0, CACHED_SCHEDULES);
+        this.seatUpdater = new SeatUpdater(catalogue, cache);
+        this.searchPool = new ThreadPoolExecutor(maxConcurrentSearches, maxConcurrentSearches, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxConcurrentSearches * QUEUED_SEARCHES_PER_THREAD), new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ScheduleServer catalogue [port] [maxConcurrentSearches] [timeoutMillis]");
+            System.exit(2);
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        int maxConcurrentSearches = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long timeoutMillis = args.length > 3 ? Long.parseLong(args[3]) : 5000;
+
+        ScheduleServer scheduleServer = new ScheduleServer(CatalogueLoader.loadCatalogue(args[0]), maxConcurrentSearches, timeoutMillis);
+        HttpServer server = scheduleServer.start(new InetSocketAddress(port));
+        System.err.println("Serving " + scheduleServer.catalogue.getCourseCount() + " courses on port " + server.getAddress().getPort());
+    }
+
+    public HttpServer start(InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/schedules", this::handle);
+        server.createContext("/seats", this::handle);
+        server.setExecutor(connectionExecutor());
+        server.start();
+        return server;
+    }
+
+    // One virtual thread per request on JDK 21+, looked up reflectively so this still builds for 17.
+    private static ExecutorService connectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(FALLBACK_CONNECTION_THREADS);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/schedules")) {
+                if (method.equals("GET")) {
+                    query(exchange);
+                } else {
+                    respond(exchange, 405, error("Only GET is supported"));
+                }
+            } else if (path.equals("/seats")) {
+                if (method.equals("POST")) {
+                    updateSeats(exchange);
+                } else {
+                    respond(exchange, 405, error("Only POST is supported"));
+                }
+            } else {
+                respond(exchange, 404, error("Not found"));
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            System.err.println("Failed to handle " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + ": " + e);
+            respond(exchange, 500, error("Internal error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void query(HttpExchange exchange) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        List<Course> courses = new ArrayList<>();
+        String courseList = params.getOrDefault("courses", "");
+        for (String courseId : courseList.split(",")) {
+            if (courseId.trim().isEmpty()) {
+                continue;
+            }
+            Course course = catalogue.findCourse(courseId.trim());
+            if (course == null) {
+                throw new IllegalArgumentException("Unknown course " + courseId.trim());
+            }
+            courses.add(course);
+        }
+        if (courses.isEmpty()) {
+            throw new IllegalArgumentException("No courses given");
+        }
+        ScheduleConstraints constraints = new ScheduleConstraints(parseTime(params, "earliest"), parseTime(params, "latest"),
+                Boolean.parseBoolean(params.get("open")));
+        int page = parseInt(params, "page", 0, 0, Integer.MAX_VALUE / MAX_PAGE_SIZE);
+        int size = parseInt(params, "size", 20, 1, MAX_PAGE_SIZE);
+        if ((long) (page + 1) * size > MAX_PAGED_SCHEDULES) {
+            throw new IllegalArgumentException("Only the first " + MAX_PAGED_SCHEDULES + " schedules are paged; narrow the search");
+        }
+        long needed = (long) (page + 1) * size + 1; // One past the page, to tell whether there is another
+
+        AtomicBoolean started = new AtomicBoolean();
+        Future<Answer> search;
+        try {
+            search = searchPool.submit(() -> {
+                started.set(true);
+                List<List<Section>> schedules = cache.getCombinations(courses, constraints, needed);
+                return new Answer(schedules, schedules.isEmpty() ? explainEmpty(courses, constraints, deadline) : null);
+            });
+        } catch (RejectedExecutionException e) {
+            respond(exchange, 503, error("Too many searches in progress; try again"));
+            return;
+        }
+
+        Answer answer;
+        try {
+            answer = search.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Interrupts a running search (the walk checks for it) and drops one still queued
+            search.cancel(true);
+            if (started.get()) {
+                respond(exchange, 504, error("Search took longer than " + timeoutMillis + " ms"));
+            } else {
+                searchPool.remove((Runnable) search); // Frees its place in the queue now
+                respond(exchange, 503, error("Too many searches in progress; try again"));
+            }
+            return;
+        } catch (InterruptedException e) {
+            search.cancel(true);
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, error("Interrupted"));
+            return;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        List<List<Section>> schedules = answer.schedules;
+        int from = (int) Math.min(schedules.size(), (long) page * size);
+        int to = (int) Math.min(schedules.size(), (long) from + size);
+        respond(exchange, 200, page(schedules.subList(from, to), page, size, schedules.size() > to, answer.message));
+    }
+
+    // Runs on the search thread. Names the clashing courses, unless the time is already up.
+    private String explainEmpty(List<Course> courses, ScheduleConstraints constraints, long deadline) {
+        if (System.nanoTime() - deadline >= 0) {
+            return "No feasible schedule";
+        }
+        ScheduleCombinations scheduleCombinations = new ScheduleCombinations(courses, index);
+        scheduleCombinations.setConstraints(constraints);
+        try {
+            scheduleCombinations.checkFeasibility();
+            return "No feasible schedule";
+        } catch (InfeasibleScheduleException e) {
+            return e.getMessage();
+        }
+    }
+
+    // A page's worth of search, with why it is empty when it is.
+    private static final class Answer {
+        final List<List<Section>> schedules;
+        final String message;
+
+        Answer(List<List<Section>> schedules, String message) {
+            this.schedules = schedules;
+            this.message = message;
+        }
+    }
+
+    private void updateSeats(HttpExchange exchange) throws IOException {
+        List<SeatUpdate> updates = new ArrayList<>();
+        try (JsonStreamReader json = new JsonStreamReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            json.beginArray();
+            while (json.hasNext()) {
+                updates.add(parseSeatUpdate(json));
+            }
+            json.endArray();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid seat updates: " + e.getMessage());
+        }
+        List<Section> changed;
+        synchronized (seatUpdater) {
+            changed = seatUpdater.apply(updates);
+        }
+        respond(exchange, 200, "{\"changedSections\":" + changed.size() + "}");
+    }
+
+    private static SeatUpdate parseSeatUpdate(JsonStreamReader json) throws IOException {
+        String courseId = null;
+        Integer sectionNumber = null;
+        int capacity = 0;
+        int enrolled = 0;
+        int available = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "course":
+                    courseId = json.nextString();
+                    break;
+                case "section":
+                    sectionNumber = json.nextInt();
+                    break;
+                case "capacity":
+                    capacity = json.nextInt();
+                    break;
+                case "enrolled":
+                    enrolled = json.nextInt();
+                    break;
+                case "available":
+                    available = json.nextInt();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        if (courseId == null || sectionNumber == null) {
+            throw new IllegalArgumentException("Every seat update needs a course and a section");
+        }
+        return new SeatUpdate(courseId, sectionNumber, capacity, enrolled, available);
+    }
+
+    private static String page(List<List<Section>> schedules, int page, int size, boolean hasMore, String message) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"page\":").append(page).append(",\"size\":").append(size)
+            .append(",\"hasMore\":").append(hasMore);
+        if (message != null) {
+            json.append(",\"message\":");
+            quote(json, message);
+        }
+        json.append(",\"schedules\":[");
+        for (int i = 0; i < schedules.size(); i++) {
+            json.append(i == 0 ? "[" : ",[");
+            List<Section> schedule = schedules.get(i);
+            for (int j = 0; j < schedule.size(); j++) {
+                Section section = schedule.get(j);
+                json.append(j == 0 ? "{\"course\":" : ",{\"course\":");
+                quote(json, section.getCourse().getCourseId());
+                json.append(",\"section\":").append(section.getSectionNumber()).append(",\"title\":");
+                quote(json, section.getTitle());
+                json.append(",\"available\":").append(section.getAvailable()).append('}');
+            }
+            json.append(']');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        quote(json, message);
+        return json.append('}').toString();
+    }
+
+    private static void quote(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static LocalTime parseTime(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + name + " time '" + value + "'; use hh:mm");
+        }
+    }
+
+    private static int parseInt(Map<String, String> params, String name, int defaultValue, int min, int max) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < min || parsed > max) {
+                throw new IllegalArgumentException(name + " must be between " + min + " and " + max);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " '" + value + "'");
+        }
+    }
+}
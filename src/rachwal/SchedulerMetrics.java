@@ -0,0 +1,187 @@
+package rachwal;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide counters for parsing and searching, off unless the JVM is started with
+ * -Drachwal.metrics=true. The flag is a static final, so when it is off the JIT drops the
+ * recording code altogether. The parser and the search count into locals as before and
+ * report once per parse or search, never per line or node. The same figures go to JFR as
+ * rachwal.Parse and rachwal.Search events, which cost nothing unless a recording enables
+ * them.
+ */
+public final class SchedulerMetrics implements SchedulerMetricsMBean {
+    public static final boolean ENABLED = Boolean.getBoolean("rachwal.metrics");
+
+    // A kept schedule is an ArrayList (24 bytes), its array (16 bytes) and a reference per section
+    private static final long SCHEDULE_BYTES = 40;
+    private static final long SECTION_REFERENCE_BYTES = 4;
+
+    private static final LongAdder parses = new LongAdder();
+    private static final LongAdder linesParsed = new LongAdder();
+    private static final LongAdder bytesParsed = new LongAdder();
+    private static final LongAdder parseNanos = new LongAdder();
+    private static final LongAdder searches = new LongAdder();
+    private static final LongAdder searchNanos = new LongAdder();
+    private static final LongAdder nodesVisited = new LongAdder();
+    private static final LongAdder branchesPruned = new LongAdder();
+    private static final LongAdder leavesVisited = new LongAdder();
+    private static final LongAdder schedulesEmitted = new LongAdder();
+    private static final LongAccumulator peakResultBytes = new LongAccumulator(Math::max, 0);
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new SchedulerMetrics(),
+                        new ObjectName("rachwal:type=SchedulerMetrics"));
+            } catch (JMException e) {
+                System.err.println("Could not register scheduler metrics with JMX: " + e.getMessage());
+            }
+        }
+    }
+
+    private SchedulerMetrics() {
+    }
+
+    static void parsed(ScheduleParseEvent event, String file, long bytes, long lines, int courses, long nanos) {
+        if (ENABLED) {
+            parses.increment();
+            bytesParsed.add(bytes);
+            linesParsed.add(lines);
+            parseNanos.add(nanos);
+        }
+        if (event.shouldCommit()) {
+            event.file = file;
+            event.bytes = bytes;
+            event.lines = lines;
+            event.courses = courses;
+            event.commit();
+        }
+    }
+
+    static void searched(ScheduleSearchEvent event, String kind, int courses, long nodes, long pruned, long leaves,
+                         long schedules, long nanos) {
+        long resultBytes = schedules * (SCHEDULE_BYTES + SECTION_REFERENCE_BYTES * courses);
+        if (ENABLED) {
+            searches.increment();
+            searchNanos.add(nanos);
+            nodesVisited.add(nodes);
+            branchesPruned.add(pruned);
+            leavesVisited.add(leaves);
+            schedulesEmitted.add(schedules);
+            peakResultBytes.accumulate(resultBytes);
+        }
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.courses = courses;
+            event.nodesVisited = nodes;
+            event.branchesPruned = pruned;
+            event.leavesVisited = leaves;
+            event.schedules = schedules;
+            event.resultBytes = resultBytes;
+            event.commit();
+        }
+    }
+
+    // Schedules handed out one at a time by the lazy iterator and stream, which keep no results.
+    static void emitted(long schedules) {
+        if (ENABLED) {
+            schedulesEmitted.add(schedules);
+        }
+    }
+
+    // Every counter by name, for logging or a status page.
+    public static Map<String, Long> snapshot() {
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("parses", metrics.getParses());
+        snapshot.put("linesParsed", metrics.getLinesParsed());
+        snapshot.put("bytesParsed", metrics.getBytesParsed());
+        snapshot.put("parseTimeMillis", metrics.getParseTimeMillis());
+        snapshot.put("searches", metrics.getSearches());
+        snapshot.put("searchTimeMillis", metrics.getSearchTimeMillis());
+        snapshot.put("nodesVisited", metrics.getNodesVisited());
+        snapshot.put("branchesPruned", metrics.getBranchesPruned());
+        snapshot.put("leavesVisited", metrics.getLeavesVisited());
+        snapshot.put("schedulesEmitted", metrics.getSchedulesEmitted());
+        snapshot.put("peakResultBytes", metrics.getPeakResultBytes());
+        return snapshot;
+    }
+
+    @Override
+    public long getParses() {
+        return parses.sum();
+    }
+
+    @Override
+    public long getLinesParsed() {
+        return linesParsed.sum();
+    }
+
+    @Override
+    public long getBytesParsed() {
+        return bytesParsed.sum();
+    }
+
+    @Override
+    public long getParseTimeMillis() {
+        return parseNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    @Override
+    public long getSearchTimeMillis() {
+        return searchNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public long getNodesVisited() {
+        return nodesVisited.sum();
+    }
+
+    @Override
+    public long getBranchesPruned() {
+        return branchesPruned.sum();
+    }
+
+    @Override
+    public long getLeavesVisited() {
+        return leavesVisited.sum();
+    }
+
+    @Override
+    public long getSchedulesEmitted() {
+        return schedulesEmitted.sum();
+    }
+
+    @Override
+    public long getPeakResultBytes() {
+        return peakResultBytes.get();
+    }
+
+    @Override
+    public void reset() {
+        parses.reset();
+        linesParsed.reset();
+        bytesParsed.reset();
+        parseNanos.reset();
+        searches.reset();
+        searchNanos.reset();
+        nodesVisited.reset();
+        branchesPruned.reset();
+        leavesVisited.reset();
+        schedulesEmitted.reset();
+        peakResultBytes.reset();
+    }
+}
@@ -0,0 +1,32 @@
+package rachwal;
+
+/**
+ * JMX view of {@link SchedulerMetrics}, registered as rachwal:type=SchedulerMetrics when
+ * metrics are enabled. Times are totals in milliseconds.
+ */
+public interface SchedulerMetricsMBean {
+
+    long getParses();
+
+    long getLinesParsed();
+
+    long getBytesParsed();
+
+    long getParseTimeMillis();
+
+    long getSearches();
+
+    long getSearchTimeMillis();
+
+    long getNodesVisited();
+
+    long getBranchesPruned();
+
+    long getLeavesVisited();
+
+    long getSchedulesEmitted();
+
+    long getPeakResultBytes();
+
+    void reset();
+}
@@ -0,0 +1,47 @@
+package rachwal;
+
+/**
+ * New seat counts for one section, identified the way the registrar does: by course ID and
+ * section number. Counts are absolute rather than increments, so applying the same update
+ * twice, or out of order with an older one for another section, is harmless.
+ */
+public final class SeatUpdate {
+    private final String courseId;
+    private final int sectionNumber;
+    private final int capacity;
+    private final int enrolled;
+    private final int available;
+
+    public SeatUpdate(String courseId, int sectionNumber, int capacity, int enrolled, int available) {
+        this.courseId = courseId;
+        this.sectionNumber = sectionNumber;
+        this.capacity = capacity;
+        this.enrolled = enrolled;
+        this.available = available;
+    }
+
+    public String getCourseId() {
+        return courseId;
+    }
+
+    public int getSectionNumber() {
+        return sectionNumber;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getEnrolled() {
+        return enrolled;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    @Override
+    public String toString() {
+        return courseId + " section " + sectionNumber + ": " + enrolled + "/" + capacity + ", " + available + " available";
+    }
+}
@@ -0,0 +1,92 @@
+package rachwal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies seat updates to the sections of a loaded catalogue in place, so counts can be
+ * refreshed during registration without reparsing. After a batch, call
+ * {@link ScheduleCombinations#refreshSeats()} on any open search to bring its results up
+ * to date. Given a {@link ScheduleCache}, every batch also drops the cached results the
+ * changed sections affect. Not safe for concurrent use.
+ */
+public class SeatUpdater {
+    private final Map<String, Map<Integer, Section>> sections = new HashMap<>();
+    private final ColumnarCatalogue catalogue; // null when every course was given up front
+    private final ScheduleCache cache;
+
+    public SeatUpdater(List<Course> courses) {
+        this.catalogue = null;
+        this.cache = null;
+        for (Course course : courses) {
+            add(course);
+        }
+    }
+
+    // Courses are looked up, and built, only when an update names them.
+    public SeatUpdater(ColumnarCatalogue catalogue, ScheduleCache cache) {
+        this.catalogue = catalogue;
+        this.cache = cache;
+    }
+
+    private Map<Integer, Section> add(Course course) {
+        Map<Integer, Section> byNumber = sections.computeIfAbsent(course.getCourseId(), id -> new HashMap<>());
+        for (Section section : course.getSections()) {
+            byNumber.put(section.getSectionNumber(), section);
+        }
+        return byNumber;
+    }
+
+    // The current counts of every section, e.g. from a newly downloaded copy of the catalogue.
+    public static List<SeatUpdate> countsOf(List<Course> courses) {
+        List<SeatUpdate> counts = new ArrayList<>();
+        for (Course course : courses) {
+            for (Section section : course.getSections()) {
+                counts.add(new SeatUpdate(course.getCourseId(), section.getSectionNumber(), section.getCapacity(),
+                        section.getEnrolled(), section.getAvailable()));
+            }
+        }
+        return counts;
+    }
+
+    // Null if the catalogue has no such section.
+    public Section findSection(String courseId, int sectionNumber) {
+        Map<Integer, Section> byNumber = sections.get(courseId);
+        if (byNumber == null && catalogue != null) {
+            Course course = catalogue.findCourse(courseId);
+            byNumber = course == null ? null : add(course);
+        }
+        return byNumber == null ? null : byNumber.get(sectionNumber);
+    }
+
+    /**
+     * Applies the updates in order and returns the sections whose counts changed. Updates for
+     * sections the catalogue does not have are skipped.
+     */
+    public List<Section> apply(Iterable<SeatUpdate> updates) {
+        Set<Section> changed = new LinkedHashSet<>();
+        for (SeatUpdate update : updates) {
+            Section section = findSection(update.getCourseId(), update.getSectionNumber());
+            if (section == null) {
+                System.err.println("Seat update for unknown section: " + update);
+                continue;
+            }
+            if (section.getCapacity() == update.getCapacity() && section.getEnrolled() == update.getEnrolled()
+                    && section.getAvailable() == update.getAvailable()) {
+                continue;
+            }
+            section.setCapacity(update.getCapacity());
+            section.setEnrolled(update.getEnrolled());
+            section.setAvailable(update.getAvailable());
+            changed.add(section);
+        }
+        if (cache != null && !changed.isEmpty()) {
+            cache.invalidate(changed);
+        }
+        return new ArrayList<>(changed);
+    }
+}
@@ -117,6 +117,16 @@ public class Section {
         this.meetings.add(meeting);
     }
 
+    // Meetings that give no dates of their own run for the whole section.
+    void inheritDates() {
+        for (Meeting meeting : meetings) {
+            if (meeting.getStartDate() == null && meeting.getEndDate() == null) {
+                meeting.setStartDate(startDate);
+                meeting.setEndDate(endDate);
+            }
+        }
+    }
+
     public void addFaculty(Faculty faculty) {
         this.faculties.add(faculty);
     }
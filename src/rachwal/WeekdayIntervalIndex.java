@@ -0,0 +1,122 @@
+package rachwal;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Meetings of a {@link ColumnarCatalogue} grouped by weekday and sorted by start time. The
+ * meetings that can clash with a given one on a weekday are found with a binary search: on
+ * that day they start before it ends and no earlier than the longest meeting of the day
+ * before it starts. Only those candidates have their end times and date ranges checked, so
+ * finding a section's clashes no longer means testing it against every other section.
+ *
+ * Meetings on days that have no weekday are rare and are kept in one list that is scanned.
+ */
+final class WeekdayIntervalIndex {
+    private final ColumnarCatalogue catalogue;
+    private final int[][] meetings = new int[ColumnarCatalogue.MASKED_DAYS][]; // by start time
+    private final int[][] starts = new int[ColumnarCatalogue.MASKED_DAYS][];
+    private final int[] longest = new int[ColumnarCatalogue.MASKED_DAYS];     // seconds
+    private final int[] unmasked;
+
+    WeekdayIntervalIndex(ColumnarCatalogue catalogue) {
+        this.catalogue = catalogue;
+        int total = catalogue.getMeetingCount();
+        int[] counts = new int[ColumnarCatalogue.MASKED_DAYS];
+        int unmaskedCount = 0;
+        for (int m = 0; m < total; m++) {
+            int mask = catalogue.clashMaskOf(m);
+            for (int day = 0; day < ColumnarCatalogue.MASKED_DAYS; day++) {
+                if ((mask & (1 << day)) != 0) {
+                    counts[day]++;
+                }
+            }
+            if (catalogue.hasUnmaskedDay(m)) {
+                unmaskedCount++;
+            }
+        }
+
+        // Sort by (start << 32 | meeting) so one primitive sort orders each day.
+        long[][] keys = new long[ColumnarCatalogue.MASKED_DAYS][];
+        for (int day = 0; day < keys.length; day++) {
+            keys[day] = new long[counts[day]];
+            counts[day] = 0;
+        }
+        unmasked = new int[unmaskedCount];
+        unmaskedCount = 0;
+        for (int m = 0; m < total; m++) {
+            int mask = catalogue.clashMaskOf(m);
+            int start = catalogue.startTimeOf(m);
+            for (int day = 0; day < ColumnarCatalogue.MASKED_DAYS; day++) {
+                if ((mask & (1 << day)) != 0) {
+                    keys[day][counts[day]++] = (long) start << 32 | m;
+                    longest[day] = Math.max(longest[day], catalogue.endTimeOf(m) - start);
+                }
+            }
+            if (catalogue.hasUnmaskedDay(m)) {
+                unmasked[unmaskedCount++] = m;
+            }
+        }
+        for (int day = 0; day < keys.length; day++) {
+            Arrays.sort(keys[day]);
+            meetings[day] = new int[keys[day].length];
+            starts[day] = new int[keys[day].length];
+            for (int i = 0; i < keys[day].length; i++) {
+                meetings[day][i] = (int) keys[day][i];
+                starts[day][i] = (int) (keys[day][i] >>> 32);
+            }
+        }
+    }
+
+    /**
+     * Sets the ids of every section with a meeting that clashes with a meeting of the given
+     * section, by the same test as {@link ColumnarCatalogue#conflicts(int, int)}. The
+     * section itself is included if it has a meeting that can clash.
+     */
+    void addConflicts(int section, BitSet into) {
+        for (int m1 = catalogue.meetingStartOf(section); m1 < catalogue.meetingEndOf(section); m1++) {
+            int mask = catalogue.clashMaskOf(m1);
+            if (mask == 0) {
+                continue;
+            }
+            int start1 = catalogue.startTimeOf(m1);
+            int end1 = catalogue.endTimeOf(m1);
+            for (int day = 0; day < ColumnarCatalogue.MASKED_DAYS; day++) {
+                if ((mask & (1 << day)) == 0) {
+                    continue;
+                }
+                int[] dayStarts = starts[day];
+                int[] dayMeetings = meetings[day];
+                // Anything starting at or before start1 - longest has ended by start1.
+                for (int i = firstStartAfter(dayStarts, start1 - longest[day]); i < dayStarts.length && dayStarts[i] < end1; i++) {
+                    int m2 = dayMeetings[i];
+                    if (catalogue.endTimeOf(m2) > start1 && (catalogue.sharedWeekdays(m1, m2) & (1 << day)) != 0) {
+                        into.set(catalogue.sectionOfMeeting(m2));
+                    }
+                }
+            }
+            if (unmasked.length > 0 && catalogue.hasUnmaskedDay(m1)) {
+                for (int m2 : unmasked) {
+                    if (catalogue.meetingsClash(m1, m2)) {
+                        into.set(catalogue.sectionOfMeeting(m2));
+                    }
+                }
+            }
+        }
+    }
+
+    // Index of the first start greater than the given time.
+    private static int firstStartAfter(int[] sortedStarts, int time) {
+        int low = 0;
+        int high = sortedStarts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedStarts[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}